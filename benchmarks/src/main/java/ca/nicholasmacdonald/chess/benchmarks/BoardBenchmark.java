@@ -0,0 +1,64 @@
+package ca.nicholasmacdonald.chess.benchmarks;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.board.Square;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads every square of the board through the square views
+ *
+ * @author Nicholas MacDonald
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    @Param
+    private Position position;
+
+    private Board board;
+
+    @Setup
+    public void setup() {
+        board = position.createBoard();
+    }
+
+    @Benchmark
+    public int getSquare() {
+        int pieces = 0;
+        for (int y = 0; y < Board.NUMBER_OF_SQUARES_IN_LINE; y++) {
+            for (int x = 0; x < Board.NUMBER_OF_SQUARES_IN_LINE; x++) {
+                if (board.getSquare(x, y).getPiece() != null) {
+                    pieces++;
+                }
+            }
+        }
+        return pieces;
+    }
+
+    @Benchmark
+    public int iterator() {
+        int pieces = 0;
+        for (Square square : board) {
+            if (square.getPiece() != null) {
+                pieces++;
+            }
+        }
+        return pieces;
+    }
+}
@@ -0,0 +1,58 @@
+package ca.nicholasmacdonald.chess.benchmarks;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.move.LegalMoveGenerator;
+import ca.nicholasmacdonald.chess.move.Move;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Check detection and a full turn - picking up a piece, dropping it and working out the new game state
+ *
+ * @author Nicholas MacDonald
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameManagerBenchmark {
+    @Param
+    private Position position;
+
+    private GameManager game;
+    private int move;
+
+    @Setup
+    public void setup() {
+        game = new GameManager(position.createBoard(), new LegalMoveGenerator(), null);
+        move = game.getLegalMoves().get(0);
+    }
+
+    @Benchmark
+    public boolean isInCheck() {
+        return game.isInCheck(game.getCurrentPlayer());
+    }
+
+    @Benchmark
+    public boolean handleMove() {
+        final Board board = game.getBoard();
+        game.handleSelect(board.getSquare(Move.getFrom(move)));
+        final boolean moved = game.handleMove(board.getSquare(Move.getTo(move)));
+        game.unmakeMove();
+        return moved;
+    }
+}
@@ -0,0 +1,58 @@
+package ca.nicholasmacdonald.chess.benchmarks;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.move.MoveList;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the moves of every piece of one type belonging to the player to move
+ *
+ * @author Nicholas MacDonald
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceBenchmark {
+    @Param
+    private Position position;
+
+    @Param
+    private PieceType type;
+
+    private Board board;
+    private long pieces;
+    private MoveList moves;
+
+    @Setup
+    public void setup() {
+        board = position.createBoard();
+        pieces = board.getOccupancy(type, board.getSideToMove());
+        moves = new MoveList();
+    }
+
+    @Benchmark
+    public int getLegalMoves() {
+        moves.clear();
+        for (long mask = pieces; mask != 0; mask &= mask - 1) {
+            final int index = Long.numberOfTrailingZeros(mask);
+            board.getPiece(index).getLegalMoves(board, index, moves);
+        }
+        return moves.size();
+    }
+}
@@ -0,0 +1,29 @@
+package ca.nicholasmacdonald.chess.benchmarks;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.notation.Fen;
+
+/**
+ * The positions every benchmark is run across
+ *
+ * @author Nicholas MacDonald
+ */
+public enum Position {
+    OPENING("r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 2 3"),
+    MIDDLEGAME("r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"),
+    ENDGAME("8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1");
+
+    private final String fen;
+
+    Position(String fen) {
+        this.fen = fen;
+    }
+
+    public String getFen() {
+        return fen;
+    }
+
+    public Board createBoard() {
+        return Fen.parse(fen);
+    }
+}
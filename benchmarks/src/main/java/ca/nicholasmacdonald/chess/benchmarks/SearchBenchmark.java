@@ -0,0 +1,112 @@
+package ca.nicholasmacdonald.chess.benchmarks;
+
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.move.LegalMoveGenerator;
+import ca.nicholasmacdonald.chess.search.ParallelSearch;
+import ca.nicholasmacdonald.chess.search.SearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to reach a fixed depth with an empty transposition table. The speedup of N threads is the score with one
+ * thread divided by the score with N, which {@link #main(String[])} prints after running the benchmark.
+ *
+ * @author Nicholas MacDonald
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SearchBenchmark {
+    @Param
+    private Position position;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    private int threads;
+
+    @Param({"8"})
+    private int depth;
+
+    private ParallelSearch search;
+
+    @Setup
+    public void setup() {
+        search = new ParallelSearch(new GameManager(position.createBoard(), new LegalMoveGenerator(), null), threads);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearTable() {
+        search.getTable().clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        search.shutdown();
+    }
+
+    @Benchmark
+    public SearchResult timeToDepth() {
+        return search.search(TimeUnit.HOURS.toMillis(1), depth);
+    }
+
+    /**
+     * Runs the benchmark with the usual JMH options, then prints the speedup of every thread count over one thread
+     * at the same position and depth. Runs without threads=1 have no speedup.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        final Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(SearchBenchmark.class.getName())
+                .build();
+        final Collection<RunResult> results = new Runner(options).run();
+
+        final Map<String, Double> oneThread = new HashMap<>();
+        for (RunResult result : results) {
+            if (result.getParams().getParam("threads").equals("1")) {
+                oneThread.put(getKey(result), result.getPrimaryResult().getScore());
+            }
+        }
+
+        System.out.println();
+        System.out.printf("%-12s %5s %7s %12s %7s%n", "position", "depth", "threads", "ms", "speedup");
+        for (RunResult result : results) {
+            final double millis = result.getPrimaryResult().getScore();
+            final Double baseline = oneThread.get(getKey(result));
+            System.out.printf("%-12s %5s %7s %12.1f %7s%n",
+                    result.getParams().getParam("position"),
+                    result.getParams().getParam("depth"),
+                    result.getParams().getParam("threads"),
+                    millis,
+                    baseline == null ? "-" : String.format("%.2f", baseline / millis));
+        }
+    }
+
+    private static String getKey(RunResult result) {
+        return result.getParams().getParam("position") + " " + result.getParams().getParam("depth");
+    }
+}
@@ -0,0 +1,69 @@
+package ca.nicholasmacdonald.chess.benchmarks;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packing a position into a snapshot and unpacking it again, compared with copying the board
+ *
+ * @author Nicholas MacDonald
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+    @Param
+    private Position position;
+
+    private Board board;
+    private byte[] snapshot;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() {
+        board = position.createBoard();
+        snapshot = board.snapshot();
+        buffer = ByteBuffer.allocateDirect(Board.SNAPSHOT_SIZE);
+    }
+
+    @Benchmark
+    public byte[] snapshot() {
+        return board.snapshot();
+    }
+
+    @Benchmark
+    public Board restore() {
+        board.restore(snapshot);
+        return board;
+    }
+
+    @Benchmark
+    public Board bufferRoundTrip() {
+        buffer.clear();
+        board.snapshot(buffer);
+        buffer.flip();
+        board.restore(buffer);
+        return board;
+    }
+
+    @Benchmark
+    public Board copy() {
+        return new Board(board);
+    }
+}
@@ -0,0 +1,60 @@
+package ca.nicholasmacdonald.chess.batch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A window onto single byte text in a buffer, such as a memory-mapped file, that can be read as characters without
+ * copying it. One sequence is meant to be reused for every line read, so nothing is allocated per line.
+ *
+ * @author Nicholas MacDonald
+ */
+public final class ByteSequence implements CharSequence {
+    private ByteBuffer buffer;
+    private int offset;
+    private int length;
+
+    /**
+     * Points the sequence at part of a buffer
+     *
+     * @param buffer the buffer holding the text
+     * @param offset the absolute index of the first byte
+     * @param length the number of bytes
+     * @return this sequence
+     */
+    public ByteSequence set(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        return (char) (buffer.get(offset + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Invalid range " + start + " to " + end + " for length " + length);
+        }
+        return new ByteSequence().set(buffer, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+}
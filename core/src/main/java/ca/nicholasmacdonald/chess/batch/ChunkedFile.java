@@ -0,0 +1,229 @@
+package ca.nicholasmacdonald.chess.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * A read-only file split into fixed size chunks that are memory-mapped one at a time, so files of any size can be
+ * read with bounded memory and handed out to several threads.
+ * <p>
+ * Records don't line up with chunk boundaries, so each chunk is mapped with the byte before it and a little past its
+ * end. A record belongs to the chunk it starts in: the reader of a chunk skips the partial record at its start and
+ * finishes the record that runs over its end.
+ *
+ * @author Nicholas MacDonald
+ */
+public final class ChunkedFile implements Closeable {
+    private final FileChannel channel;
+    private final long size;
+    private final long chunkSize;
+    private final int overhang;
+
+    /**
+     * Opens a file for reading in chunks
+     *
+     * @param path the file
+     * @param chunkSize the size of each chunk
+     * @param overhang how far past the end of a chunk its last record may run
+     * @throws IOException if the file can't be opened
+     */
+    public ChunkedFile(Path path, long chunkSize, int overhang) throws IOException {
+        if (chunkSize <= 0 || chunkSize + overhang + 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.chunkSize = chunkSize;
+        this.overhang = overhang;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int getChunkCount() {
+        return (int) ((size + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Maps one chunk of the file
+     *
+     * @param index the index of the chunk
+     * @return the mapped chunk
+     * @throws IOException if the file can't be mapped
+     */
+    public Chunk map(int index) throws IOException {
+        final long start = index * chunkSize;
+        final long end = Math.min(size, start + chunkSize);
+        final long mapStart = Math.max(0, start - 1);
+        final long mapEnd = Math.min(size, end + overhang);
+
+        final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        return new Chunk(buffer, mapStart, (int) (start - mapStart), (int) (end - mapStart), start == 0, mapEnd == size);
+    }
+
+    /**
+     * Runs a task on every chunk using a pool of threads, and writes the output of each task in the order of the
+     * chunks. Only a few chunks are worked on ahead of the one being written, so memory stays bounded however slow the
+     * output is.
+     *
+     * @param threads the number of threads
+     * @param task turns a chunk into the bytes to write for it, and may be called by several threads at once
+     * @param out where to write the output
+     * @throws IOException if the file can't be read or the output can't be written
+     * @throws IllegalStateException if a task fails or the calling thread is interrupted
+     */
+    public void processInOrder(int threads, Function<Chunk, byte[]> task, OutputStream out) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final int chunks = getChunkCount();
+        final int lookahead = threads * 2;
+        final Deque<Future<byte[]>> pending = new ArrayDeque<>(lookahead);
+
+        try {
+            int next = 0;
+            while (next < chunks || !pending.isEmpty()) {
+                while (next < chunks && pending.size() < lookahead) {
+                    final int index = next++;
+                    pending.add(executor.submit(() -> task.apply(map(index))));
+                }
+                out.write(pending.poll().get());
+            }
+            out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading chunks", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IllegalStateException("Failed to process a chunk", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * One mapped chunk. Offsets are indexes into the buffer.
+     */
+    public static final class Chunk {
+        private final MappedByteBuffer buffer;
+        private final long position;
+        private final int start;
+        private final int end;
+        private final boolean first;
+        private final boolean last;
+
+        Chunk(MappedByteBuffer buffer, long position, int start, int end, boolean first, boolean last) {
+            this.buffer = buffer;
+            this.position = position;
+            this.start = start;
+            this.end = end;
+            this.first = first;
+            this.last = last;
+        }
+
+        public MappedByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * Gets the position in the file of an offset in the buffer
+         *
+         * @param offset the offset
+         * @return the position in the file
+         */
+        public long getFilePosition(int offset) {
+            return position + offset;
+        }
+
+        /**
+         * Gets the offset of the first byte of the chunk. Unless this is the first chunk, the byte before it is the
+         * last byte of the previous chunk.
+         *
+         * @return the start offset
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * Gets the offset just past the last byte of the chunk. Records that start before here belong to this chunk.
+         *
+         * @return the end offset
+         */
+        public int getEnd() {
+            return end;
+        }
+
+        public boolean isFirst() {
+            return first;
+        }
+
+        /**
+         * Returns true if the buffer reaches the end of the file, so a record that runs to the end of the buffer is
+         * complete rather than cut off
+         *
+         * @return true if the buffer ends at the end of the file
+         */
+        public boolean isLast() {
+            return last;
+        }
+
+        /**
+         * Finds the offset of the first line that starts in this chunk
+         *
+         * @return the offset, which is {@link #getEnd()} or more if no line starts in the chunk
+         */
+        public int getFirstLineStart() {
+            if (first) {
+                return start;
+            }
+
+            int i = start - 1;
+            while (i < buffer.limit() && buffer.get(i) != '\n') {
+                i++;
+            }
+            return i + 1;
+        }
+
+        /**
+         * Finds the end of the line starting at an offset, not counting the line break
+         *
+         * @param lineStart the offset of the start of the line
+         * @return the offset of the line break, or the end of the buffer if this is the last chunk
+         * @throws IllegalStateException if the line runs past the end of the mapped overhang
+         */
+        public int getLineEnd(int lineStart) {
+            int i = lineStart;
+            while (i < buffer.limit() && buffer.get(i) != '\n') {
+                i++;
+            }
+
+            if (i == buffer.limit() && !last) {
+                throw new IllegalStateException("Line is longer than the chunk overhang");
+            }
+            return i;
+        }
+    }
+}
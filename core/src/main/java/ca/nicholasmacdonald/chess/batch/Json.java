@@ -0,0 +1,32 @@
+package ca.nicholasmacdonald.chess.batch;
+
+/**
+ * The little bit of JSON writing the batch tools need
+ *
+ * @author Nicholas MacDonald
+ */
+final class Json {
+    private Json() {
+    }
+
+    /**
+     * Appends text as a quoted JSON string
+     *
+     * @param builder the builder to append to
+     * @param text the text, which may be read straight out of a file
+     */
+    static void appendString(StringBuilder builder, CharSequence text) {
+        builder.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < ' ') {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        builder.append('"');
+    }
+}
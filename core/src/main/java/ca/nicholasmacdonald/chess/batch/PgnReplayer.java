@@ -0,0 +1,442 @@
+package ca.nicholasmacdonald.chess.batch;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.game.GameState;
+import ca.nicholasmacdonald.chess.move.LegalMoveGenerator;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.notation.Fen;
+import ca.nicholasmacdonald.chess.notation.MoveNotation;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Replays every game in a PGN file through the rules, and writes a line of JSON for each one with the number of moves
+ * played, the state the game ended in and the first move that isn't legal, if there is one. Castling and en passant
+ * aren't part of the game, so games that use them stop being replayed at that move.
+ * <p>
+ * The file is memory-mapped a chunk at a time and the chunks are shared out between threads, each with its own game.
+ * A game starts at a line beginning with an Event tag, and belongs to the chunk that line starts in. Moves are read
+ * straight out of the mapped file and matched against the legal moves the game has already worked out for the turn.
+ * Results are written in the same order as the games in the file.
+ * <pre>
+ * usage: PgnReplayer INPUT [--output FILE] [--threads N] [--illegal-only]
+ * </pre>
+ *
+ * @author Nicholas MacDonald
+ */
+public class PgnReplayer {
+    private static final long CHUNK_SIZE = 16L * 1024 * 1024;
+    private static final int MAX_GAME_LENGTH = 1024 * 1024;
+
+    private static final String EVENT_TAG = "[Event ";
+    private static final String FEN_TAG = "[FEN \"";
+
+    private final int threads;
+    private final boolean illegalOnly;
+    private final Supplier<? extends Listener> listeners;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    // Totals
+    private final LongAdder games = new LongAdder();
+    private final LongAdder illegalGames = new LongAdder();
+    private final LongAdder plies = new LongAdder();
+    private final LongAdder checkmates = new LongAdder();
+    private final LongAdder stalemates = new LongAdder();
+
+    /**
+     * Creates a replayer
+     *
+     * @param threads the number of threads to replay games on
+     * @param illegalOnly true to only write out the games with an illegal move
+     */
+    public PgnReplayer(int threads, boolean illegalOnly) {
+        this(threads, illegalOnly, null);
+    }
+
+    /**
+     * Creates a replayer that also tells listeners about every move
+     *
+     * @param threads the number of threads to replay games on
+     * @param illegalOnly true to only write out the games with an illegal move
+     * @param listeners creates a listener for each thread, or null for none
+     */
+    public PgnReplayer(int threads, boolean illegalOnly, Supplier<? extends Listener> listeners) {
+        this.threads = threads;
+        this.illegalOnly = illegalOnly;
+        this.listeners = listeners;
+    }
+
+    /**
+     * Replays every game in a file
+     *
+     * @param input the PGN file
+     * @param out where to write the results
+     * @throws IOException if the file can't be read or the results can't be written
+     */
+    public void replay(Path input, OutputStream out) throws IOException {
+        try (ChunkedFile file = new ChunkedFile(input, CHUNK_SIZE, MAX_GAME_LENGTH)) {
+            file.processInOrder(threads, chunk -> workers.get().replay(chunk), out);
+        }
+    }
+
+    /**
+     * Gets the totals as one line of JSON
+     *
+     * @param nanos how long the replay took, for the throughput
+     * @return the totals
+     */
+    public String toJson(long nanos) {
+        final double seconds = nanos / 1e9;
+        return "{\"games\":" + games.sum() +
+                ",\"illegal\":" + illegalGames.sum() +
+                ",\"plies\":" + plies.sum() +
+                ",\"checkmates\":" + checkmates.sum() +
+                ",\"stalemates\":" + stalemates.sum() +
+                ",\"millis\":" + nanos / 1_000_000 +
+                ",\"gamesPerSecond\":" + (seconds == 0 ? 0 : (long) (games.sum() / seconds)) +
+                ",\"pliesPerSecond\":" + (seconds == 0 ? 0 : (long) (plies.sum() / seconds)) +
+                "}";
+    }
+
+    /**
+     * Watches the games as they are replayed. Each thread has its own listener, so listeners don't need to be
+     * thread-safe.
+     */
+    public interface Listener {
+        /**
+         * Called before each legal move of a game is played
+         *
+         * @param board the board before the move, which must not be changed
+         * @param move the move
+         */
+        void beforeMove(Board board, int move);
+
+        /**
+         * Called once a game has been replayed, up to its first illegal move
+         *
+         * @param state the state the game ended in
+         * @param result the result written after the moves, or an empty sequence if there wasn't one
+         */
+        void endGame(GameState state, CharSequence result);
+    }
+
+    /**
+     * Everything one thread needs to replay games, reused for every game
+     */
+    private class Worker {
+        private final Listener listener = listeners == null ? null : listeners.get();
+        private final GameManager game = new GameManager(new Board(), new LegalMoveGenerator(), null);
+        private final ByteBuffer startPosition = ByteBuffer.wrap(game.snapshot());
+        private final Board setUpBoard = new Board();
+        private final ByteBuffer setUpPosition = ByteBuffer.allocate(Board.SNAPSHOT_SIZE);
+        private final ByteSequence text = new ByteSequence();
+        private final StringBuilder output = new StringBuilder();
+
+        private MappedByteBuffer buffer;
+
+        // The game being replayed
+        private long gamePosition;
+        private int gamePlies;
+        private int illegalPly;
+        private int illegalStart;
+        private int illegalLength;
+        private int resultStart;
+        private int resultLength;
+        private String error;
+        private boolean inComment;
+        private int variationDepth;
+
+        byte[] replay(ChunkedFile.Chunk chunk) {
+            buffer = chunk.getBuffer();
+            output.setLength(0);
+
+            boolean inGame = false;
+            for (int start = chunk.getFirstLineStart(); start < buffer.limit(); ) {
+                if (startsWith(start, EVENT_TAG)) {
+                    if (inGame) {
+                        finishGame();
+                    }
+                    inGame = start < chunk.getEnd();
+                    if (inGame) {
+                        startGame(chunk.getFilePosition(start));
+                    }
+                }
+
+                // Lines before the first game in the chunk belong to a game in the previous chunk
+                if (!inGame && start >= chunk.getEnd()) {
+                    break;
+                }
+
+                final int end = chunk.getLineEnd(start);
+                if (inGame) {
+                    readLine(start, end > start && buffer.get(end - 1) == '\r' ? end - 1 : end);
+                }
+                start = end + 1;
+            }
+
+            if (inGame) {
+                finishGame();
+            }
+
+            buffer = null;
+            return output.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        private void startGame(long position) {
+            gamePosition = position;
+            gamePlies = 0;
+            illegalPly = -1;
+            resultLength = 0;
+            error = null;
+            inComment = false;
+            variationDepth = 0;
+
+            startPosition.clear();
+            game.restore(startPosition);
+        }
+
+        private void readLine(int start, int end) {
+            if (start == end) {
+                return;
+            }
+
+            // Tags and escaped lines only count at the start of a line, outside of comments
+            if (!inComment && variationDepth == 0) {
+                if (buffer.get(start) == '%') {
+                    return;
+                } else if (buffer.get(start) == '[') {
+                    readTag(start, end);
+                    return;
+                }
+            }
+
+            int i = start;
+            while (i < end) {
+                final byte c = buffer.get(i);
+
+                if (inComment) {
+                    inComment = c != '}';
+                    i++;
+                } else if (c == '{') {
+                    inComment = true;
+                    i++;
+                } else if (c == ';') {
+                    return;
+                } else if (c == '(') {
+                    variationDepth++;
+                    i++;
+                } else if (c == ')') {
+                    variationDepth = Math.max(0, variationDepth - 1);
+                    i++;
+                } else if (isWhitespace(c)) {
+                    i++;
+                } else {
+                    final int tokenStart = i;
+                    while (i < end && !isDelimiter(buffer.get(i))) {
+                        i++;
+                    }
+
+                    // Moves in variations weren't played
+                    if (variationDepth == 0) {
+                        readToken(tokenStart, i);
+                    }
+                }
+            }
+        }
+
+        private void readTag(int start, int end) {
+            if (!startsWith(start, FEN_TAG) || gamePlies > 0) {
+                return;
+            }
+
+            int valueEnd = end;
+            while (valueEnd > start + FEN_TAG.length() && buffer.get(valueEnd - 1) != '"') {
+                valueEnd--;
+            }
+            if (valueEnd == start + FEN_TAG.length()) {
+                error = "Invalid FEN tag";
+                return;
+            }
+
+            final int valueStart = start + FEN_TAG.length();
+            try {
+                Fen.parse(text.set(buffer, valueStart, valueEnd - 1 - valueStart), setUpBoard);
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+                return;
+            }
+
+            setUpPosition.clear();
+            setUpBoard.snapshot(setUpPosition);
+            setUpPosition.flip();
+            game.restore(setUpPosition);
+        }
+
+        private void readToken(int start, int end) {
+            if (buffer.get(start) == '$') {
+                return;
+            }
+
+            if (isResult(start, end)) {
+                resultStart = start;
+                resultLength = end - start;
+                return;
+            }
+
+            // Move numbers can be written on their own or joined to the move, as in 12. e4, 12.e4 or 12... e5
+            int i = start;
+            while (i < end && isDigit(buffer.get(i))) {
+                i++;
+            }
+            if (i < end && buffer.get(i) == '.') {
+                while (i < end && buffer.get(i) == '.') {
+                    i++;
+                }
+                start = i;
+            } else if (i == end) {
+                return;
+            }
+
+            if (start == end || illegalPly >= 0 || error != null) {
+                return;
+            }
+
+            final int move = MoveNotation.parse(text.set(buffer, start, end - start), game.getBoard(), game.getLegalMoves());
+            if (move != Move.NONE) {
+                if (listener != null) {
+                    listener.beforeMove(game.getBoard(), move);
+                }
+                game.playMove(move);
+                gamePlies++;
+            } else {
+                illegalPly = gamePlies + 1;
+                illegalStart = start;
+                illegalLength = end - start;
+            }
+        }
+
+        private void finishGame() {
+            final GameState state = game.getState();
+            final boolean illegal = illegalPly >= 0 || error != null;
+
+            games.increment();
+            plies.add(gamePlies);
+            if (illegal) {
+                illegalGames.increment();
+            }
+            if (state == GameState.WHITE_CHECKMATE || state == GameState.BLACK_CHECKMATE) {
+                checkmates.increment();
+            } else if (state == GameState.STALEMATE) {
+                stalemates.increment();
+            }
+
+            if (listener != null) {
+                listener.endGame(state, text.set(buffer, resultStart, resultLength));
+            }
+
+            if (illegalOnly && !illegal) {
+                return;
+            }
+
+            output.append("{\"position\":").append(gamePosition)
+                    .append(",\"plies\":").append(gamePlies)
+                    .append(",\"state\":\"").append(state.name()).append('"');
+            if (resultLength > 0) {
+                output.append(",\"result\":");
+                Json.appendString(output, text.set(buffer, resultStart, resultLength));
+            }
+            if (illegalPly >= 0) {
+                output.append(",\"illegalPly\":").append(illegalPly).append(",\"illegalMove\":");
+                Json.appendString(output, text.set(buffer, illegalStart, illegalLength));
+            }
+            if (error != null) {
+                output.append(",\"error\":");
+                Json.appendString(output, error);
+            }
+            output.append("}\n");
+        }
+
+        private boolean isResult(int start, int end) {
+            return equals(start, end, "1-0") || equals(start, end, "0-1") || equals(start, end, "1/2-1/2") || equals(start, end, "*");
+        }
+
+        private boolean equals(int start, int end, String text) {
+            return end - start == text.length() && startsWith(start, text);
+        }
+
+        private boolean startsWith(int offset, String prefix) {
+            if (offset + prefix.length() > buffer.limit()) {
+                return false;
+            }
+
+            for (int i = 0; i < prefix.length(); i++) {
+                if (buffer.get(offset + i) != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static boolean isDigit(byte c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private static boolean isDelimiter(byte c) {
+        return isWhitespace(c) || c == '{' || c == '}' || c == '(' || c == ')' || c == ';';
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path input = null;
+        String output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean illegalOnly = false;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--output":
+                    output = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--illegal-only":
+                    illegalOnly = true;
+                    break;
+                default:
+                    if (input != null) {
+                        throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                    }
+                    input = Paths.get(args[i]);
+                    break;
+            }
+        }
+
+        if (input == null) {
+            throw new IllegalArgumentException("usage: PgnReplayer INPUT [--output FILE] [--threads N] [--illegal-only]");
+        }
+
+        PgnReplayer replayer = new PgnReplayer(threads, illegalOnly);
+
+        try (OutputStream out = new BufferedOutputStream(output == null ? System.out : Files.newOutputStream(Paths.get(output)))) {
+            final long start = System.nanoTime();
+            replayer.replay(input, out);
+            System.err.println(replayer.toJson(System.nanoTime() - start));
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package ca.nicholasmacdonald.chess.batch;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.game.GameState;
+import ca.nicholasmacdonald.chess.move.LegalMoveGenerator;
+import ca.nicholasmacdonald.chess.notation.Fen;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs the rules over a file of positions, one FEN or EPD record per line, and writes what it finds about each one
+ * as a line of JSON: the number of legal moves and whether the player to move is in check, checkmate or stalemate.
+ * <p>
+ * The file is memory-mapped a chunk at a time and the chunks are shared out between threads, each with its own board
+ * and game. Lines are parsed straight out of the mapped file, so nothing is allocated per position except the output.
+ * Results are written in the same order as the input. Blank lines and lines starting with '#' are skipped, and a line
+ * that is not a valid position is written out with the reason instead.
+ * <pre>
+ * usage: PositionAnalyzer INPUT [--output FILE] [--threads N]
+ * </pre>
+ *
+ * @author Nicholas MacDonald
+ */
+public class PositionAnalyzer {
+    private static final long CHUNK_SIZE = 16L * 1024 * 1024;
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private final int threads;
+    private final ThreadLocal<Worker> workers = ThreadLocal.withInitial(Worker::new);
+
+    // Totals
+    private final LongAdder positions = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder checkmates = new LongAdder();
+    private final LongAdder stalemates = new LongAdder();
+
+    public PositionAnalyzer(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Analyses every position in a file
+     *
+     * @param input the file of positions
+     * @param out where to write the results
+     * @throws IOException if the file can't be read or the results can't be written
+     */
+    public void analyze(Path input, OutputStream out) throws IOException {
+        try (ChunkedFile file = new ChunkedFile(input, CHUNK_SIZE, MAX_LINE_LENGTH)) {
+            file.processInOrder(threads, chunk -> workers.get().analyze(chunk), out);
+        }
+    }
+
+    /**
+     * Gets the totals as one line of JSON
+     *
+     * @param nanos how long the analysis took, for the throughput
+     * @return the totals
+     */
+    public String toJson(long nanos) {
+        final double seconds = nanos / 1e9;
+        return "{\"positions\":" + positions.sum() +
+                ",\"invalid\":" + invalid.sum() +
+                ",\"checks\":" + checks.sum() +
+                ",\"checkmates\":" + checkmates.sum() +
+                ",\"stalemates\":" + stalemates.sum() +
+                ",\"millis\":" + nanos / 1_000_000 +
+                ",\"positionsPerSecond\":" + (seconds == 0 ? 0 : (long) (positions.sum() / seconds)) +
+                "}";
+    }
+
+    /**
+     * Everything one thread needs to analyse positions, reused for every line
+     */
+    private class Worker {
+        private final Board board = new Board();
+        private final GameManager game = new GameManager(new Board(), new LegalMoveGenerator(), null);
+        private final ByteBuffer snapshot = ByteBuffer.allocate(Board.SNAPSHOT_SIZE);
+        private final ByteSequence line = new ByteSequence();
+        private final StringBuilder output = new StringBuilder();
+
+        byte[] analyze(ChunkedFile.Chunk chunk) {
+            output.setLength(0);
+
+            for (int start = chunk.getFirstLineStart(); start < chunk.getEnd(); ) {
+                final int end = chunk.getLineEnd(start);
+                int trimmedEnd = end;
+                if (trimmedEnd > start && chunk.getBuffer().get(trimmedEnd - 1) == '\r') {
+                    trimmedEnd--;
+                }
+
+                line.set(chunk.getBuffer(), start, trimmedEnd - start);
+                if (line.length() > 0 && line.charAt(0) != '#') {
+                    analyze(line);
+                }
+                start = end + 1;
+            }
+
+            return output.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        private void analyze(CharSequence fen) {
+            try {
+                Fen.parse(fen, board);
+            } catch (IllegalArgumentException e) {
+                invalid.increment();
+                output.append("{\"input\":");
+                Json.appendString(output, fen);
+                output.append(",\"error\":");
+                Json.appendString(output, e.getMessage());
+                output.append("}\n");
+                return;
+            }
+
+            // Hand the position to the game, which works out its state
+            snapshot.clear();
+            board.snapshot(snapshot);
+            snapshot.flip();
+            game.restore(snapshot);
+
+            final GameState state = game.getState();
+            final boolean check = state == GameState.WHITE_CHECK || state == GameState.BLACK_CHECK;
+            final boolean checkmate = state == GameState.WHITE_CHECKMATE || state == GameState.BLACK_CHECKMATE;
+            final boolean stalemate = state == GameState.STALEMATE;
+
+            positions.increment();
+            if (check || checkmate) {
+                checks.increment();
+            }
+            if (checkmate) {
+                checkmates.increment();
+            }
+            if (stalemate) {
+                stalemates.increment();
+            }
+
+            output.append("{\"fen\":\"");
+            Fen.write(board, output);
+            output.append("\",\"legalMoves\":").append(game.getLegalMoves().size())
+                    .append(",\"check\":").append(check || checkmate)
+                    .append(",\"checkmate\":").append(checkmate)
+                    .append(",\"stalemate\":").append(stalemate)
+                    .append("}\n");
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path input = null;
+        String output = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--output":
+                    output = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    if (input != null) {
+                        throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                    }
+                    input = Paths.get(args[i]);
+                    break;
+            }
+        }
+
+        if (input == null) {
+            throw new IllegalArgumentException("usage: PositionAnalyzer INPUT [--output FILE] [--threads N]");
+        }
+
+        PositionAnalyzer analyzer = new PositionAnalyzer(threads);
+
+        try (OutputStream out = new BufferedOutputStream(output == null ? System.out : Files.newOutputStream(Paths.get(output)))) {
+            final long start = System.nanoTime();
+            analyzer.analyze(input, out);
+            System.err.println(analyzer.toJson(System.nanoTime() - start));
+        }
+    }
+}
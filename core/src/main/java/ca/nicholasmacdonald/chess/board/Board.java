@@ -0,0 +1,459 @@
+package ca.nicholasmacdonald.chess.board;
+
+import ca.nicholasmacdonald.chess.piece.Attacks;
+import ca.nicholasmacdonald.chess.piece.Piece;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * The chess board that holds all the squares.
+ * <p>
+ * The position is stored as bitboards, where bit {@code y * 8 + x} of a mask is set if
+ * the square at (x, y) is occupied. There is one mask per piece type and one per player,
+ * and the squares returned by {@link #getSquare(int, int)} are views on top of them.
+ * <p>
+ * The board also knows whose turn it is and keeps a Zobrist key of the position, which is
+ * updated as pieces are placed and removed and as the turn passes.
+ * <p>
+ * A position can be packed into {@link #SNAPSHOT_SIZE} bytes with {@link #snapshot()} and put back with
+ * {@link #restore(byte[])}. The first 32 bytes hold one nibble per square, low nibble first, that is 0 for an empty
+ * square or the piece's id plus one. In the last byte, bit 0 is set when black is to move and bits 1 to 3 are left
+ * for the game to store its state in.
+ *
+ * @author Nicholas MacDonald
+ */
+public class Board implements Iterable<Square> {
+    public static final int NUMBER_OF_SQUARES_IN_LINE = 8;
+    public static final int NUMBER_OF_SQUARES = NUMBER_OF_SQUARES_IN_LINE * NUMBER_OF_SQUARES_IN_LINE;
+
+    // Packed position layout
+    public static final int SNAPSHOT_SIZE = NUMBER_OF_SQUARES / 2 + 1;
+    public static final int SNAPSHOT_FLAGS = SNAPSHOT_SIZE - 1;
+    public static final int SNAPSHOT_BLACK_TO_MOVE = 1;
+
+    private final Square[] squares;
+    private final Piece[] pieces;
+
+    // Occupancy masks
+    private final long[] typeOccupancy;
+    private final long[] playerOccupancy;
+    private long occupancy;
+
+    private Player sideToMove;
+    private long positionKey;
+
+    public Board() {
+        this.squares = new Square[NUMBER_OF_SQUARES];
+        this.pieces = new Piece[NUMBER_OF_SQUARES];
+        this.typeOccupancy = new long[PieceType.values().length];
+        this.playerOccupancy = new long[Player.values().length];
+
+        for (int index = 0; index < NUMBER_OF_SQUARES; index++) {
+            this.squares[index] = new Square(this, getX(index), getY(index));
+        }
+
+        this.sideToMove = Player.WHITE;
+        this.positionKey = Zobrist.sideKey(sideToMove);
+
+        prepareBoard();
+    }
+
+    /**
+     * Creates a copy of another board, including whose turn it is
+     *
+     * @param other the board to copy
+     */
+    public Board(Board other) {
+        this.squares = new Square[NUMBER_OF_SQUARES];
+        this.pieces = other.pieces.clone();
+        this.typeOccupancy = other.typeOccupancy.clone();
+        this.playerOccupancy = other.playerOccupancy.clone();
+        this.occupancy = other.occupancy;
+
+        for (int index = 0; index < NUMBER_OF_SQUARES; index++) {
+            this.squares[index] = new Square(this, getX(index), getY(index));
+        }
+
+        this.sideToMove = other.sideToMove;
+        this.positionKey = other.positionKey;
+    }
+
+    private void prepareBoard() {
+        // Black pieces
+        setPiece(0, 0, Piece.of(PieceType.ROOK, Player.BLACK));
+        setPiece(1, 0, Piece.of(PieceType.KNIGHT, Player.BLACK));
+        setPiece(2, 0, Piece.of(PieceType.BISHOP, Player.BLACK));
+        setPiece(3, 0, Piece.of(PieceType.QUEEN, Player.BLACK));
+        setPiece(4, 0, Piece.of(PieceType.KING, Player.BLACK));
+        setPiece(5, 0, Piece.of(PieceType.BISHOP, Player.BLACK));
+        setPiece(6, 0, Piece.of(PieceType.KNIGHT, Player.BLACK));
+        setPiece(7, 0, Piece.of(PieceType.ROOK, Player.BLACK));
+
+        // Black pawns
+        for (int i = 0; i < NUMBER_OF_SQUARES_IN_LINE; i++) {
+            setPiece(i, 1, Piece.of(PieceType.PAWN, Player.BLACK));
+        }
+
+        // White pieces
+        setPiece(0, 7, Piece.of(PieceType.ROOK, Player.WHITE));
+        setPiece(1, 7, Piece.of(PieceType.KNIGHT, Player.WHITE));
+        setPiece(2, 7, Piece.of(PieceType.BISHOP, Player.WHITE));
+        setPiece(3, 7, Piece.of(PieceType.QUEEN, Player.WHITE));
+        setPiece(4, 7, Piece.of(PieceType.KING, Player.WHITE));
+        setPiece(5, 7, Piece.of(PieceType.BISHOP, Player.WHITE));
+        setPiece(6, 7, Piece.of(PieceType.KNIGHT, Player.WHITE));
+        setPiece(7, 7, Piece.of(PieceType.ROOK, Player.WHITE));
+
+        // White pawns
+        for (int i = 0; i < NUMBER_OF_SQUARES_IN_LINE; i++) {
+            setPiece(i, 6, Piece.of(PieceType.PAWN, Player.WHITE));
+        }
+    }
+
+    /**
+     * Removes every piece from the board and gives the turn to white
+     */
+    public void clear() {
+        for (int index = 0; index < NUMBER_OF_SQUARES; index++) {
+            setPiece(index, null);
+        }
+        setSideToMove(Player.WHITE);
+    }
+
+    private void setPiece(int x, int y, Piece piece) {
+        setPiece(getIndex(x, y), piece);
+    }
+
+    /**
+     * Gets the square at the given set of coordinates
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the square
+     * @throws IllegalArgumentException if the coordinates are invalid
+     */
+    public Square getSquare(int x, int y) {
+        if (!isCoordinatesValid(x, y)) {
+            throw new IllegalArgumentException("Can not get square at invalid coordinates: (" + x + ", " + y + ")");
+        }
+
+        return squares[getIndex(x, y)];
+    }
+
+    /**
+     * Gets the square at the given index
+     *
+     * @param index the index of the square
+     * @return the square
+     */
+    public Square getSquare(int index) {
+        return squares[index];
+    }
+
+    /**
+     * Gets the piece on the square at the given index
+     *
+     * @param index the index of the square
+     * @return the piece, or null if the square is empty
+     */
+    public Piece getPiece(int index) {
+        return pieces[index];
+    }
+
+    /**
+     * Places a piece on the square at the given index, replacing whatever was there
+     *
+     * @param index the index of the square
+     * @param piece the piece, or null to empty the square
+     */
+    public void setPiece(int index, Piece piece) {
+        final long bit = 1L << index;
+
+        Piece oldPiece = pieces[index];
+        positionKey ^= Zobrist.pieceKey(oldPiece, index) ^ Zobrist.pieceKey(piece, index);
+
+        if (oldPiece != null) {
+            typeOccupancy[oldPiece.getType().ordinal()] &= ~bit;
+            playerOccupancy[oldPiece.getPlayer().ordinal()] &= ~bit;
+            occupancy &= ~bit;
+        }
+
+        pieces[index] = piece;
+        if (piece != null) {
+            typeOccupancy[piece.getType().ordinal()] |= bit;
+            playerOccupancy[piece.getPlayer().ordinal()] |= bit;
+            occupancy |= bit;
+        }
+    }
+
+    /**
+     * Packs the pieces and the player to move into a new array
+     *
+     * @return the snapshot, {@link #SNAPSHOT_SIZE} bytes long
+     */
+    public byte[] snapshot() {
+        final byte[] snapshot = new byte[SNAPSHOT_SIZE];
+        snapshot(ByteBuffer.wrap(snapshot));
+        return snapshot;
+    }
+
+    /**
+     * Packs the pieces and the player to move into a buffer, advancing its position by {@link #SNAPSHOT_SIZE}
+     *
+     * @param buffer the buffer to write to
+     */
+    public void snapshot(ByteBuffer buffer) {
+        for (int index = 0; index < NUMBER_OF_SQUARES; index += 2) {
+            buffer.put((byte) (getPieceCode(pieces[index]) | getPieceCode(pieces[index + 1]) << 4));
+        }
+        buffer.put((byte) (sideToMove == Player.BLACK ? SNAPSHOT_BLACK_TO_MOVE : 0));
+    }
+
+    /**
+     * Replaces the position with one packed by {@link #snapshot()}
+     *
+     * @param snapshot the snapshot
+     * @throws IllegalArgumentException if the snapshot is the wrong size or holds an unknown piece
+     */
+    public void restore(byte[] snapshot) {
+        if (snapshot.length != SNAPSHOT_SIZE) {
+            throw new IllegalArgumentException("A snapshot is " + SNAPSHOT_SIZE + " bytes, not " + snapshot.length);
+        }
+        restore(ByteBuffer.wrap(snapshot));
+    }
+
+    /**
+     * Replaces the position with one packed by {@link #snapshot(ByteBuffer)}, advancing the buffer's position by
+     * {@link #SNAPSHOT_SIZE}
+     *
+     * @param buffer the buffer to read from
+     * @throws IllegalArgumentException if the buffer holds less than a snapshot or the snapshot holds an unknown
+     * piece, in which case neither the board nor the buffer is changed
+     */
+    public void restore(ByteBuffer buffer) {
+        checkSnapshot(buffer);
+
+        // Rebuild the masks and the key from scratch rather than placing the pieces one at a time
+        Arrays.fill(typeOccupancy, 0);
+        Arrays.fill(playerOccupancy, 0);
+        occupancy = 0;
+        positionKey = 0;
+
+        for (int index = 0; index < NUMBER_OF_SQUARES; index += 2) {
+            final int codes = buffer.get();
+            placePiece(index, getPieceFromCode(codes & 0xF));
+            placePiece(index + 1, getPieceFromCode((codes >>> 4) & 0xF));
+        }
+
+        sideToMove = (buffer.get() & SNAPSHOT_BLACK_TO_MOVE) != 0 ? Player.BLACK : Player.WHITE;
+        positionKey ^= Zobrist.sideKey(sideToMove);
+    }
+
+    /**
+     * Checks a snapshot can be restored without reading it, so a bad one is found before anything is cleared
+     *
+     * @param buffer the buffer holding the snapshot at its position
+     * @throws IllegalArgumentException if the buffer holds less than a snapshot or the snapshot holds an unknown piece
+     */
+    public static void checkSnapshot(ByteBuffer buffer) {
+        if (buffer.remaining() < SNAPSHOT_SIZE) {
+            throw new IllegalArgumentException("A snapshot is " + SNAPSHOT_SIZE + " bytes, only " + buffer.remaining() + " left");
+        }
+
+        final int start = buffer.position();
+        for (int offset = 0; offset < NUMBER_OF_SQUARES / 2; offset++) {
+            final int codes = buffer.get(start + offset);
+            getPieceFromCode(codes & 0xF);
+            getPieceFromCode((codes >>> 4) & 0xF);
+        }
+    }
+
+    /**
+     * Puts a piece on a square while the board is being rebuilt, when the masks don't hold anything for the square
+     */
+    private void placePiece(int index, Piece piece) {
+        pieces[index] = piece;
+        if (piece != null) {
+            final long bit = 1L << index;
+            typeOccupancy[piece.getType().ordinal()] |= bit;
+            playerOccupancy[piece.getPlayer().ordinal()] |= bit;
+            occupancy |= bit;
+            positionKey ^= Zobrist.pieceKey(piece, index);
+        }
+    }
+
+    private static int getPieceCode(Piece piece) {
+        return piece == null ? 0 : piece.getId() + 1;
+    }
+
+    private static Piece getPieceFromCode(int code) {
+        if (code > Piece.NUMBER_OF_PIECES) {
+            throw new IllegalArgumentException("Invalid snapshot, unknown piece code " + code);
+        }
+        return code == 0 ? null : Piece.of(code - 1);
+    }
+
+    public Player getSideToMove() {
+        return sideToMove;
+    }
+
+    public void setSideToMove(Player sideToMove) {
+        positionKey ^= Zobrist.sideKey(this.sideToMove) ^ Zobrist.sideKey(sideToMove);
+        this.sideToMove = sideToMove;
+    }
+
+    /**
+     * Gets the Zobrist key of the position, which covers every piece and the player to move.
+     * Equal positions always have equal keys, and different positions almost never do.
+     *
+     * @return the 64-bit position key
+     */
+    public long positionKey() {
+        return positionKey;
+    }
+
+    /**
+     * Gets the mask of every occupied square
+     *
+     * @return the occupancy mask
+     */
+    public long getOccupancy() {
+        return occupancy;
+    }
+
+    /**
+     * Gets the mask of the squares occupied by a player
+     *
+     * @param player the player
+     * @return the occupancy mask
+     */
+    public long getOccupancy(Player player) {
+        return playerOccupancy[player.ordinal()];
+    }
+
+    /**
+     * Gets the mask of the squares occupied by a piece type of either player
+     *
+     * @param type the piece type
+     * @return the occupancy mask
+     */
+    public long getOccupancy(PieceType type) {
+        return typeOccupancy[type.ordinal()];
+    }
+
+    /**
+     * Gets the mask of the squares occupied by a player's pieces of a type
+     *
+     * @param type the piece type
+     * @param player the player
+     * @return the occupancy mask
+     */
+    public long getOccupancy(PieceType type, Player player) {
+        return typeOccupancy[type.ordinal()] & playerOccupancy[player.ordinal()];
+    }
+
+    /**
+     * Returns true if a player attacks the square at the given index. Rather than generating the player's moves,
+     * this looks outwards from the square: any piece that could attack the square from where it stands would also
+     * be attacked by the same kind of piece standing on the square.
+     *
+     * @param index the index of the square
+     * @param byPlayer the attacking player
+     * @return true if the square is attacked
+     */
+    public boolean isSquareAttacked(int index, Player byPlayer) {
+        final long attackers = getOccupancy(byPlayer);
+
+        // Pawns attack diagonally forwards, so look diagonally backwards from the square
+        if ((Attacks.pawnAttacks(index, byPlayer.getOpponent()) & getOccupancy(PieceType.PAWN) & attackers) != 0) {
+            return true;
+        }
+
+        if ((Attacks.knightAttacks(index) & getOccupancy(PieceType.KNIGHT) & attackers) != 0) {
+            return true;
+        }
+
+        if ((Attacks.kingAttacks(index) & getOccupancy(PieceType.KING) & attackers) != 0) {
+            return true;
+        }
+
+        final long queens = getOccupancy(PieceType.QUEEN);
+        final long diagonalAttackers = (getOccupancy(PieceType.BISHOP) | queens) & attackers;
+        if (diagonalAttackers != 0 && (Attacks.bishopAttacks(index, occupancy) & diagonalAttackers) != 0) {
+            return true;
+        }
+
+        final long lineAttackers = (getOccupancy(PieceType.ROOK) | queens) & attackers;
+        return lineAttackers != 0 && (Attacks.rookAttacks(index, occupancy) & lineAttackers) != 0;
+    }
+
+    /**
+     * Gets every piece of a player that attacks the square at the given index
+     *
+     * @param index the index of the square
+     * @param byPlayer the attacking player
+     * @param occupancy the occupied squares to use for blocking sliding pieces, which may differ from the board's
+     * @return the mask of the attacking pieces
+     */
+    public long getAttackers(int index, Player byPlayer, long occupancy) {
+        final long queens = getOccupancy(PieceType.QUEEN);
+
+        return getOccupancy(byPlayer) & (
+                (Attacks.pawnAttacks(index, byPlayer.getOpponent()) & getOccupancy(PieceType.PAWN)) |
+                (Attacks.knightAttacks(index) & getOccupancy(PieceType.KNIGHT)) |
+                (Attacks.kingAttacks(index) & getOccupancy(PieceType.KING)) |
+                (Attacks.bishopAttacks(index, occupancy) & (getOccupancy(PieceType.BISHOP) | queens)) |
+                (Attacks.rookAttacks(index, occupancy) & (getOccupancy(PieceType.ROOK) | queens)));
+    }
+
+    /**
+     * Returns true if the given set of coordinates is valid
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return true if the given set of coordinates is valid
+     */
+    public boolean isCoordinatesValid(int x, int y) {
+        return x >= 0 && x <= NUMBER_OF_SQUARES_IN_LINE - 1 && y >= 0 && y <= NUMBER_OF_SQUARES_IN_LINE - 1;
+    }
+
+    /**
+     * Gets the index of the square at the given set of coordinates
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the index
+     */
+    public static int getIndex(int x, int y) {
+        return y * NUMBER_OF_SQUARES_IN_LINE + x;
+    }
+
+    /**
+     * Gets the x coordinate of the square at the given index
+     *
+     * @param index the index
+     * @return the x coordinate
+     */
+    public static int getX(int index) {
+        return index % NUMBER_OF_SQUARES_IN_LINE;
+    }
+
+    /**
+     * Gets the y coordinate of the square at the given index
+     *
+     * @param index the index
+     * @return the y coordinate
+     */
+    public static int getY(int index) {
+        return index / NUMBER_OF_SQUARES_IN_LINE;
+    }
+
+    @Override
+    public Iterator<Square> iterator() {
+        return Arrays.asList(squares).iterator();
+    }
+}
@@ -0,0 +1,62 @@
+package ca.nicholasmacdonald.chess.board;
+
+import ca.nicholasmacdonald.chess.piece.Piece;
+
+/**
+ * A square on the chess board. Squares are views on top of the board's bitboards,
+ * so reading or changing the piece goes straight through to the board.
+ *
+ * @author Nicholas MacDonald
+ */
+public class Square {
+    private final Board board;
+    private final int x;
+    private final int y;
+    private final int index;
+
+    Square(Board board, int x, int y) {
+        this.board = board;
+        this.x = x;
+        this.y = y;
+        this.index = Board.getIndex(x, y);
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Gets the index of the square, which is also its bit in the board's bitboards
+     *
+     * @return the index of the square
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public Piece getPiece() {
+        return board.getPiece(index);
+    }
+
+    public void setPiece(Piece piece) {
+        board.setPiece(index, piece);
+    }
+
+    @Override
+    public int hashCode() {
+        // The piece is left out so the hash of a square never changes as pieces move
+        return index;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        Square square = (Square) obj;
+        return x == square.x && y == square.y && getPiece() == square.getPiece();
+    }
+}
@@ -0,0 +1,69 @@
+package ca.nicholasmacdonald.chess.board;
+
+import ca.nicholasmacdonald.chess.piece.Piece;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+/**
+ * Random keys for Zobrist hashing. The key of a position is the xor of the key of every piece on its square and,
+ * when black is to move, the side key - so adding, removing or moving a piece only takes an xor or two.
+ *
+ * @author Nicholas MacDonald
+ */
+final class Zobrist {
+    // Seed for the keys, fixed so the same position has the same key in every run
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    // Indexed by piece id, then square
+    private static final long[][] PIECE_KEYS = new long[Piece.NUMBER_OF_PIECES][Board.NUMBER_OF_SQUARES];
+    private static final long BLACK_TO_MOVE_KEY;
+
+    static {
+        long state = SEED;
+
+        for (Player player : Player.values()) {
+            for (PieceType type : PieceType.values()) {
+                for (int index = 0; index < Board.NUMBER_OF_SQUARES; index++) {
+                    state += SEED;
+                    PIECE_KEYS[Piece.of(type, player).getId()][index] = mix(state);
+                }
+            }
+        }
+
+        state += SEED;
+        BLACK_TO_MOVE_KEY = mix(state);
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Gets the key of a piece standing on a square
+     *
+     * @param piece the piece, or null for an empty square
+     * @param index the index of the square
+     * @return the key, or 0 for an empty square
+     */
+    static long pieceKey(Piece piece, int index) {
+        return piece == null ? 0 : PIECE_KEYS[piece.getId()][index];
+    }
+
+    /**
+     * Gets the key that is mixed in while a player is to move
+     *
+     * @param player the player to move
+     * @return the key
+     */
+    static long sideKey(Player player) {
+        return player == Player.BLACK ? BLACK_TO_MOVE_KEY : 0;
+    }
+
+    /**
+     * SplitMix64 finaliser, which turns consecutive states into well spread keys
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
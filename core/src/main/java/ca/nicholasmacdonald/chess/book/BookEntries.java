@@ -0,0 +1,208 @@
+package ca.nicholasmacdonald.chess.book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A growable list of book entries kept in parallel arrays, so millions of them can be collected without an object
+ * each. Entries for the same position and move are merged by adding their weights.
+ *
+ * @author Nicholas MacDonald
+ */
+final class BookEntries {
+    private static final int INITIAL_CAPACITY = 1 << 16;
+
+    // Small ranges are sorted by insertion rather than split further
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    private int[] moves = new int[INITIAL_CAPACITY];
+    private int[] weights = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds an entry. When the arrays are full the entries are merged first, and the arrays only grow if that didn't
+     * free up at least half of them.
+     *
+     * @param key the position key
+     * @param move the move played from the position
+     * @param weight how good the move is
+     */
+    void add(long key, int move, int weight) {
+        if (size == keys.length) {
+            merge();
+            if (size > keys.length / 2) {
+                keys = Arrays.copyOf(keys, keys.length * 2);
+                moves = Arrays.copyOf(moves, moves.length * 2);
+                weights = Arrays.copyOf(weights, weights.length * 2);
+            }
+        }
+
+        keys[size] = key;
+        moves[size] = move;
+        weights[size] = weight;
+        size++;
+    }
+
+    /**
+     * Adds every entry of another list
+     *
+     * @param other the other list
+     */
+    void addAll(BookEntries other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.keys[i], other.moves[i], other.weights[i]);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Merges the entries for the same position and move into one
+     */
+    void merge() {
+        sort(0, size, false);
+
+        int merged = 0;
+        for (int i = 0; i < size; i++) {
+            if (merged > 0 && keys[merged - 1] == keys[i] && moves[merged - 1] == moves[i]) {
+                weights[merged - 1] = (int) Math.min(Integer.MAX_VALUE, (long) weights[merged - 1] + weights[i]);
+            } else {
+                keys[merged] = keys[i];
+                moves[merged] = moves[i];
+                weights[merged] = weights[i];
+                merged++;
+            }
+        }
+        size = merged;
+    }
+
+    /**
+     * Writes the entries as a book file, best moves first for each position
+     *
+     * @param path the file to write
+     * @param minWeight the weight a move needs to be kept in the book
+     * @throws IOException if the file can't be written
+     */
+    void write(Path path, int minWeight) throws IOException {
+        merge();
+
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (weights[i] >= minWeight && weights[i] > 0) {
+                keys[kept] = keys[i];
+                moves[kept] = moves[i];
+                weights[kept] = weights[i];
+                kept++;
+            }
+        }
+        size = kept;
+        sort(0, size, true);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(size).putInt(0);
+
+            for (int i = 0; i < size; i++) {
+                if (buffer.remaining() < OpeningBook.ENTRY_SIZE) {
+                    flush(buffer, channel);
+                }
+                buffer.putLong(keys[i]).putInt(moves[i]).putInt(weights[i]);
+            }
+            flush(buffer, channel);
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Sorts a range of entries by position key, then by move or by falling weight. Every game passes through the same
+     * few opening positions, so the range is split three ways to keep runs of equal entries fast.
+     */
+    private void sort(int from, int to, boolean byWeight) {
+        while (to - from > INSERTION_SORT_SIZE) {
+            // Median of three as the pivot
+            final int middle = (from + to) >>> 1;
+            if (compare(middle, from, byWeight) < 0) {
+                swap(middle, from);
+            }
+            if (compare(to - 1, from, byWeight) < 0) {
+                swap(to - 1, from);
+            }
+            if (compare(to - 1, middle, byWeight) < 0) {
+                swap(to - 1, middle);
+            }
+            final long pivotKey = keys[middle];
+            final int pivotMove = moves[middle];
+            final int pivotWeight = weights[middle];
+
+            int less = from;
+            int greater = to - 1;
+            for (int i = from; i <= greater; ) {
+                final int c = compare(i, pivotKey, pivotMove, pivotWeight, byWeight);
+                if (c < 0) {
+                    swap(less++, i++);
+                } else if (c > 0) {
+                    swap(i, greater--);
+                } else {
+                    i++;
+                }
+            }
+
+            // Recurse into the smaller side so the stack stays shallow
+            if (less - from < to - greater) {
+                sort(from, less, byWeight);
+                from = greater + 1;
+            } else {
+                sort(greater + 1, to, byWeight);
+                to = less;
+            }
+        }
+
+        for (int i = from + 1; i < to; i++) {
+            for (int j = i; j > from && compare(j, j - 1, byWeight) < 0; j--) {
+                swap(j, j - 1);
+            }
+        }
+    }
+
+    private int compare(int i, int j, boolean byWeight) {
+        return compare(i, keys[j], moves[j], weights[j], byWeight);
+    }
+
+    private int compare(int i, long key, int move, int weight, boolean byWeight) {
+        if (keys[i] != key) {
+            return Long.compare(keys[i], key);
+        }
+        if (byWeight && weights[i] != weight) {
+            return Integer.compare(weight, weights[i]);
+        }
+        return Integer.compare(moves[i], move);
+    }
+
+    private void swap(int i, int j) {
+        final long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+
+        final int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+
+        final int weight = weights[i];
+        weights[i] = weights[j];
+        weights[j] = weight;
+    }
+}
@@ -0,0 +1,196 @@
+package ca.nicholasmacdonald.chess.book;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.move.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * A book of opening moves, read from a file built by {@link OpeningBookBuilder}.
+ * <p>
+ * The file is a 16 byte header (magic number, version, number of entries and a reserved int) followed by 16 byte
+ * entries of position key, encoded move and weight. Entries are sorted by position key, and the moves of a position
+ * are sorted by falling weight. The file is memory-mapped read-only and positions are found by binary search on the
+ * mapped bytes, so lookups don't allocate and every process that opens the same book shares the same pages.
+ *
+ * @author Nicholas MacDonald
+ */
+public final class OpeningBook implements Closeable {
+    public static final int MAGIC = 0x43484243;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int ENTRY_SIZE = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int size;
+
+    /**
+     * Opens a book file
+     *
+     * @param path the book file
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the file is not a book
+     */
+    public OpeningBook(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            final long length = channel.size();
+            if (length < HEADER_SIZE || length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid opening book, wrong size: " + path);
+            }
+
+            this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Invalid opening book, wrong magic number: " + path);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("Invalid opening book, unknown version " + buffer.getInt(4) + ": " + path);
+            }
+
+            this.size = buffer.getInt(8);
+            if (size < 0 || HEADER_SIZE + (long) size * ENTRY_SIZE != length) {
+                throw new IllegalArgumentException("Invalid opening book, wrong number of entries: " + path);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of entries, which is the number of moves across every position in the book
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the first entry for a position
+     *
+     * @param key the position key
+     * @return the index of the entry with the highest weight for the position, or -1 if it isn't in the book
+     */
+    public int find(long key) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (getKey(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < size && getKey(low) == key ? low : -1;
+    }
+
+    public long getKey(int index) {
+        return buffer.getLong(HEADER_SIZE + index * ENTRY_SIZE);
+    }
+
+    public int getMove(int index) {
+        return buffer.getInt(HEADER_SIZE + index * ENTRY_SIZE + 8);
+    }
+
+    public int getWeight(int index) {
+        return buffer.getInt(HEADER_SIZE + index * ENTRY_SIZE + 12);
+    }
+
+    /**
+     * Returns true if the book has moves for the position on a board
+     *
+     * @param board the board
+     * @return true if the position is in the book
+     */
+    public boolean contains(Board board) {
+        return find(board.positionKey()) >= 0;
+    }
+
+    /**
+     * Adds the book moves for the position on a board to a list, best first. A book is found by the position key
+     * alone, so a move is only added if it is one of the legal moves, in case another position shares the key.
+     *
+     * @param board the board
+     * @param legalMoves the legal moves of the position
+     * @param moves the list to add the moves to
+     */
+    public void getMoves(Board board, MoveList legalMoves, MoveList moves) {
+        final long key = board.positionKey();
+        for (int i = find(key); i >= 0 && i < size && getKey(i) == key; i++) {
+            if (legalMoves.contains(getMove(i))) {
+                moves.add(getMove(i));
+            }
+        }
+    }
+
+    /**
+     * Gets the legal book move with the highest weight for the position on a board
+     *
+     * @param board the board
+     * @param legalMoves the legal moves of the position
+     * @return the move, or {@link Move#NONE} if the position isn't in the book or none of its moves are legal
+     */
+    public int getBestMove(Board board, MoveList legalMoves) {
+        final long key = board.positionKey();
+        for (int i = find(key); i >= 0 && i < size && getKey(i) == key; i++) {
+            if (legalMoves.contains(getMove(i))) {
+                return getMove(i);
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Chooses a legal book move for the position on a board at random, with each move as likely as its weight
+     *
+     * @param board the board
+     * @param legalMoves the legal moves of the position
+     * @param random the random numbers to use
+     * @return the move, or {@link Move#NONE} if the position isn't in the book or none of its moves are legal
+     */
+    public int selectMove(Board board, MoveList legalMoves, Random random) {
+        final long key = board.positionKey();
+        final int first = find(key);
+        if (first < 0) {
+            return Move.NONE;
+        }
+
+        long total = 0;
+        int end = first;
+        for (; end < size && getKey(end) == key; end++) {
+            if (legalMoves.contains(getMove(end))) {
+                total += getWeight(end);
+            }
+        }
+
+        // Moves that aren't legal have no weight, so they are never picked
+        long pick = (long) (random.nextDouble() * total);
+        int last = Move.NONE;
+        for (int i = first; i < end; i++) {
+            if (legalMoves.contains(getMove(i))) {
+                last = getMove(i);
+                pick -= getWeight(i);
+                if (pick < 0) {
+                    return last;
+                }
+            }
+        }
+        return last;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
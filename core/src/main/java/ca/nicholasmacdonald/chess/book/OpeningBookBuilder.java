@@ -0,0 +1,176 @@
+package ca.nicholasmacdonald.chess.book;
+
+import ca.nicholasmacdonald.chess.batch.PgnReplayer;
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.game.GameState;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds an {@link OpeningBook} from the first moves of the games in a PGN file.
+ * <p>
+ * Every move gets 2 points when the player who made it went on to win, 1 for a draw or an unknown result and none for
+ * a loss, and a move's weight is the sum of its points over every game. Moves with no points are left out. Games are
+ * replayed on several threads by {@link PgnReplayer}, up to their first illegal move.
+ * <pre>
+ * usage: OpeningBookBuilder INPUT OUTPUT [--plies N] [--min-weight N] [--threads N]
+ * </pre>
+ *
+ * @author Nicholas MacDonald
+ */
+public class OpeningBookBuilder {
+    public static final int DEFAULT_PLIES = 20;
+    public static final int DEFAULT_MIN_WEIGHT = 1;
+
+    private final int plies;
+    private final int minWeight;
+    private final int threads;
+
+    /**
+     * Creates a builder
+     *
+     * @param plies how many moves of each game to add to the book
+     * @param minWeight the weight a move needs to be kept in the book
+     * @param threads the number of threads to replay games on
+     */
+    public OpeningBookBuilder(int plies, int minWeight, int threads) {
+        this.plies = plies;
+        this.minWeight = minWeight;
+        this.threads = threads;
+    }
+
+    /**
+     * Builds a book from a PGN file
+     *
+     * @param input the PGN file
+     * @param output the book file to write
+     * @return the totals of the games that were replayed, as JSON
+     * @throws IOException if the PGN can't be read or the book can't be written
+     */
+    public String build(Path input, Path output) throws IOException {
+        final List<Collector> collectors = new ArrayList<>();
+        final PgnReplayer replayer = new PgnReplayer(threads, true, () -> {
+            Collector collector = new Collector();
+            synchronized (collectors) {
+                collectors.add(collector);
+            }
+            return collector;
+        });
+
+        final long start = System.nanoTime();
+        replayer.replay(input, new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+
+        final BookEntries entries = new BookEntries();
+        for (Collector collector : collectors) {
+            entries.addAll(collector.entries);
+        }
+        entries.write(output, minWeight);
+
+        return replayer.toJson(System.nanoTime() - start);
+    }
+
+    /**
+     * Collects the book moves of the games replayed by one thread
+     */
+    private class Collector implements PgnReplayer.Listener {
+        private final BookEntries entries = new BookEntries();
+
+        // The book moves of the game being replayed
+        private final long[] keys = new long[plies];
+        private final int[] moves = new int[plies];
+        private final Player[] players = new Player[plies];
+        private int size;
+
+        @Override
+        public void beforeMove(Board board, int move) {
+            if (size < plies) {
+                keys[size] = board.positionKey();
+                moves[size] = move;
+                players[size] = board.getSideToMove();
+                size++;
+            }
+        }
+
+        @Override
+        public void endGame(GameState state, CharSequence result) {
+            final Player winner = getWinner(state, result);
+
+            for (int i = 0; i < size; i++) {
+                final int weight = winner == null ? 1 : winner == players[i] ? 2 : 0;
+                if (weight > 0) {
+                    entries.add(keys[i], moves[i], weight);
+                }
+            }
+            size = 0;
+        }
+
+        /**
+         * Gets the winner from how the game ended on the board, or from the result written after the moves
+         *
+         * @return the winner, or null for a draw or an unknown result
+         */
+        private Player getWinner(GameState state, CharSequence result) {
+            if (state == GameState.BLACK_CHECKMATE) {
+                return Player.WHITE;
+            } else if (state == GameState.WHITE_CHECKMATE) {
+                return Player.BLACK;
+            } else if (result.length() == 3 && result.charAt(0) == '1' && result.charAt(2) == '0') {
+                return Player.WHITE;
+            } else if (result.length() == 3 && result.charAt(0) == '0' && result.charAt(2) == '1') {
+                return Player.BLACK;
+            }
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path input = null;
+        Path output = null;
+        int plies = DEFAULT_PLIES;
+        int minWeight = DEFAULT_MIN_WEIGHT;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--plies":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                case "--min-weight":
+                    minWeight = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    if (input == null) {
+                        input = Paths.get(args[i]);
+                    } else if (output == null) {
+                        output = Paths.get(args[i]);
+                    } else {
+                        throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                    }
+                    break;
+            }
+        }
+
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("usage: OpeningBookBuilder INPUT OUTPUT [--plies N] [--min-weight N] [--threads N]");
+        }
+
+        System.err.println(new OpeningBookBuilder(plies, minWeight, threads).build(input, output));
+    }
+}
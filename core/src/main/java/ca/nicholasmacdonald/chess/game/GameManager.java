@@ -0,0 +1,429 @@
+package ca.nicholasmacdonald.chess.game;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.board.Square;
+import ca.nicholasmacdonald.chess.move.LegalMoveGenerator;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.move.MoveGenerator;
+import ca.nicholasmacdonald.chess.move.MoveList;
+import ca.nicholasmacdonald.chess.notation.MoveNotation;
+import ca.nicholasmacdonald.chess.piece.Piece;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Manages the state of the chess game
+ *
+ * @author Nicholas MacDonald
+ */
+public class GameManager {
+    // Enough for most games and a search from them - the stack doubles if it runs out, so idle games stay small
+    private static final int INITIAL_UNDO_CAPACITY = 128;
+
+    // The state is kept in bits 1 to 3 of a snapshot's flags byte, as its ordinal plus one
+    private static final int SNAPSHOT_STATE_SHIFT = 1;
+    private static final int SNAPSHOT_STATE_MASK = 0x7;
+    private static final GameState[] STATES = GameState.values();
+
+    private final Board board;
+    private final MoveGenerator moveGenerator;
+    private final TranspositionTable table;
+    private GameState state;
+
+    // The set is cleared and filled again on every selection, and the view handed out is made once
+    private Square selectedSquare;
+    private final Set<Square> selectedPossibleMoves = new HashSet<>();
+    private final Set<Square> selectedPossibleMovesView = Collections.unmodifiableSet(selectedPossibleMoves);
+
+    // Legal moves of the current player, worked out once at the start of each turn
+    private final MoveList turnMoves;
+    private final long[] turnMoveTargets;
+    private boolean turnMovesValid;
+
+    // Undo stack - one entry per move made
+    private int[] undoMoves;
+    private Piece[] undoMovedPieces;
+    private Piece[] undoCapturedPieces;
+    private GameState[] undoStates;
+    private int undoSize;
+
+    public GameManager() {
+        this(new LegalMoveGenerator());
+    }
+
+    /**
+     * Creates a game that uses the given generator to decide which moves are legal
+     *
+     * @param moveGenerator the move generator
+     */
+    public GameManager(MoveGenerator moveGenerator) {
+        this(moveGenerator, null);
+    }
+
+    /**
+     * Creates a game that uses the given generator to decide which moves are legal, and caches the state of every
+     * position it reaches in a table that may be shared with other games
+     *
+     * @param moveGenerator the move generator
+     * @param table the table to cache positions in, or null to not cache them
+     */
+    public GameManager(MoveGenerator moveGenerator, TranspositionTable table) {
+        this(new Board(), moveGenerator, table);
+    }
+
+    /**
+     * Creates a game that continues from the position on a board
+     *
+     * @param board the board, which the game takes ownership of
+     * @param moveGenerator the move generator
+     * @param table the table to cache positions in, or null to not cache them
+     */
+    public GameManager(Board board, MoveGenerator moveGenerator, TranspositionTable table) {
+        this.board = board;
+        this.moveGenerator = moveGenerator;
+        this.table = table;
+        this.selectedSquare = null;
+        this.turnMoves = new MoveList();
+        this.turnMoveTargets = new long[Board.NUMBER_OF_SQUARES];
+        this.turnMovesValid = false;
+        this.undoMoves = new int[INITIAL_UNDO_CAPACITY];
+        this.undoMovedPieces = new Piece[INITIAL_UNDO_CAPACITY];
+        this.undoCapturedPieces = new Piece[INITIAL_UNDO_CAPACITY];
+        this.undoStates = new GameState[INITIAL_UNDO_CAPACITY];
+        this.undoSize = 0;
+        updateState();
+    }
+
+    /**
+     * Handles the selection of a square
+     *
+     * @param square the square the user clicked
+     * @return true if the selection was successful
+     */
+    public boolean handleSelect(Square square) {
+        if (square.getPiece().getPlayer() == board.getSideToMove()) {
+            setSelectedSquare(square);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Handles the move (dropping the selected square)
+     *
+     * @param moveSquare the square the piece was dropped on
+     * @return true if the move was successful
+     */
+    public boolean handleMove(Square moveSquare) {
+        final boolean canMove = playMove(getSelectedMove(moveSquare));
+
+        setSelectedSquare(null);
+        return canMove;
+    }
+
+    /**
+     * Plays a move for the current player if it is legal, then works out the new state of the game
+     *
+     * @param move the encoded move
+     * @return true if the move was legal and has been played
+     */
+    public boolean playMove(int move) {
+        if (move == Move.NONE || !getLegalMoves().contains(move)) {
+            return false;
+        }
+
+        makeMove(move);
+        updateState();
+        return true;
+    }
+
+    /**
+     * Plays a move written in coordinate notation (e2e4) or standard algebraic notation (e4, Nf3, exd8=Q) for the
+     * current player if it is legal, then works out the new state of the game
+     *
+     * @param notation the written move
+     * @return true if the move was legal and has been played
+     * @see MoveNotation
+     */
+    public boolean playMove(CharSequence notation) {
+        return playMove(MoveNotation.parse(notation, board, getLegalMoves()));
+    }
+
+    /**
+     * Works out the state of the game for the player whose turn it now is
+     */
+    private void updateState() {
+        final Player enemyPlayer = board.getSideToMove();
+
+        // Positions seen before don't need their moves generated
+        if (table != null) {
+            final GameState cachedState = TranspositionTable.getState(table.probe(board.positionKey()));
+            if (cachedState != null) {
+                state = cachedState;
+                return;
+            }
+        }
+
+        // Check if enemy has moves
+        final boolean enemyPlayerHasMoves = !getLegalMoves().isEmpty();
+
+        // Check the state of the game
+        if (isInCheck(enemyPlayer)) {
+            if (enemyPlayerHasMoves) {
+                state = enemyPlayer == Player.BLACK ? GameState.BLACK_CHECK : GameState.WHITE_CHECK;
+            } else {
+                state = enemyPlayer == Player.BLACK ? GameState.BLACK_CHECKMATE : GameState.WHITE_CHECKMATE;
+            }
+        } else if (!enemyPlayerHasMoves) {
+            state = GameState.STALEMATE;
+        } else {
+            state = GameState.PLAYING;
+        }
+
+        if (table != null) {
+            table.store(board.positionKey(), TranspositionTable.pack(Move.NONE, 0, 0, TranspositionTable.BOUND_NONE, state, getLegalMoves().size()));
+        }
+    }
+
+    /**
+     * Gets every legal move the current player can make. The moves are worked out once per turn and shared, so the
+     * list must not be changed and is only valid until the next move is made or unmade.
+     *
+     * @return the legal moves of the current player
+     */
+    public MoveList getLegalMoves() {
+        if (!turnMovesValid) {
+            moveGenerator.generateMoves(board, board.getSideToMove(), turnMoves);
+
+            Arrays.fill(turnMoveTargets, 0);
+            for (int i = 0; i < turnMoves.size(); i++) {
+                final int move = turnMoves.get(i);
+                turnMoveTargets[Move.getFrom(move)] |= 1L << Move.getTo(move);
+            }
+
+            turnMovesValid = true;
+        }
+
+        return turnMoves;
+    }
+
+    /**
+     * Makes a move for the current player and passes the turn to the other player. The move is not
+     * checked and the game state is left as it was, so callers are expected to only make moves that came from
+     * the move generator and to update the state themselves if they need it.
+     *
+     * @param move the encoded move
+     */
+    public void makeMove(int move) {
+        if (undoSize == undoMoves.length) {
+            growUndoStack();
+        }
+
+        final int from = Move.getFrom(move);
+        final int to = Move.getTo(move);
+        final Piece piece = board.getPiece(from);
+
+        undoMoves[undoSize] = move;
+        undoMovedPieces[undoSize] = piece;
+        undoCapturedPieces[undoSize] = board.getPiece(to);
+        undoStates[undoSize] = state;
+        undoSize++;
+
+        // If pawn hits the end, turn it into a queen
+        board.setPiece(from, null);
+        board.setPiece(to, Move.isPromotion(move) ? Piece.of(PieceType.QUEEN, piece.getPlayer()) : piece);
+        board.setSideToMove(board.getSideToMove().getOpponent());
+        turnMovesValid = false;
+    }
+
+    /**
+     * Takes back the last move made, restoring the board, the player to move and the game state
+     *
+     * @throws IllegalStateException if no moves have been made
+     */
+    public void unmakeMove() {
+        if (undoSize == 0) {
+            throw new IllegalStateException("There is no move to unmake");
+        }
+
+        undoSize--;
+        final int move = undoMoves[undoSize];
+
+        board.setPiece(Move.getFrom(move), undoMovedPieces[undoSize]);
+        board.setPiece(Move.getTo(move), undoCapturedPieces[undoSize]);
+        state = undoStates[undoSize];
+        board.setSideToMove(board.getSideToMove().getOpponent());
+        turnMovesValid = false;
+
+        // Don't keep captured pieces reachable from the stack
+        undoMovedPieces[undoSize] = null;
+        undoCapturedPieces[undoSize] = null;
+    }
+
+    /**
+     * Gets the number of moves that can be unmade
+     *
+     * @return the number of moves made
+     */
+    public int getMoveCount() {
+        return undoSize;
+    }
+
+    /**
+     * Packs the position and the state of the game into {@link Board#SNAPSHOT_SIZE} bytes. The moves that led to the
+     * position are not included.
+     *
+     * @return the snapshot
+     */
+    public byte[] snapshot() {
+        final byte[] snapshot = board.snapshot();
+        snapshot[Board.SNAPSHOT_FLAGS] |= getStateCode();
+        return snapshot;
+    }
+
+    /**
+     * Packs the position and the state of the game into a buffer, advancing its position by
+     * {@link Board#SNAPSHOT_SIZE}
+     *
+     * @param buffer the buffer to write to
+     */
+    public void snapshot(ByteBuffer buffer) {
+        final int flags = buffer.position() + Board.SNAPSHOT_FLAGS;
+        board.snapshot(buffer);
+        buffer.put(flags, (byte) (buffer.get(flags) | getStateCode()));
+    }
+
+    /**
+     * Continues the game from a snapshot. The selection and the moves that can be unmade are cleared, and if the
+     * snapshot only came from a board the state is worked out again.
+     *
+     * @param snapshot the snapshot
+     * @throws IllegalArgumentException if the snapshot is not valid
+     */
+    public void restore(byte[] snapshot) {
+        if (snapshot.length != Board.SNAPSHOT_SIZE) {
+            throw new IllegalArgumentException("A snapshot is " + Board.SNAPSHOT_SIZE + " bytes, not " + snapshot.length);
+        }
+        restore(ByteBuffer.wrap(snapshot));
+    }
+
+    /**
+     * Continues the game from a snapshot, advancing the buffer's position by {@link Board#SNAPSHOT_SIZE}
+     *
+     * @param buffer the buffer to read from
+     * @throws IllegalArgumentException if the snapshot is not valid, in which case neither the game nor the buffer is
+     * changed
+     * @see #restore(byte[])
+     */
+    public void restore(ByteBuffer buffer) {
+        // Everything is checked before the board is touched, so a bad snapshot leaves the game as it was
+        Board.checkSnapshot(buffer);
+        final int stateCode = (buffer.get(buffer.position() + Board.SNAPSHOT_FLAGS) >>> SNAPSHOT_STATE_SHIFT) & SNAPSHOT_STATE_MASK;
+        if (stateCode > STATES.length) {
+            throw new IllegalArgumentException("Invalid snapshot, unknown game state " + stateCode);
+        }
+
+        board.restore(buffer);
+        setSelectedSquare(null);
+        turnMovesValid = false;
+        undoSize = 0;
+        Arrays.fill(undoMovedPieces, null);
+        Arrays.fill(undoCapturedPieces, null);
+
+        if (stateCode == 0) {
+            updateState();
+        } else {
+            state = STATES[stateCode - 1];
+        }
+    }
+
+    private int getStateCode() {
+        return (state.ordinal() + 1) << SNAPSHOT_STATE_SHIFT;
+    }
+
+    private void growUndoStack() {
+        final int capacity = undoMoves.length * 2;
+        undoMoves = Arrays.copyOf(undoMoves, capacity);
+        undoMovedPieces = Arrays.copyOf(undoMovedPieces, capacity);
+        undoCapturedPieces = Arrays.copyOf(undoCapturedPieces, capacity);
+        undoStates = Arrays.copyOf(undoStates, capacity);
+    }
+
+    public Square getSelectedSquare() {
+        return selectedSquare;
+    }
+
+    private void setSelectedSquare(Square selectedSquare) {
+        this.selectedSquare = selectedSquare;
+        selectedPossibleMoves.clear();
+
+        if (selectedSquare != null && selectedSquare.getPiece() != null) {
+            getLegalMoves();
+
+            for (long targets = turnMoveTargets[selectedSquare.getIndex()]; targets != 0; targets &= targets - 1) {
+                selectedPossibleMoves.add(board.getSquare(Long.numberOfTrailingZeros(targets)));
+            }
+        }
+    }
+
+    private int getSelectedMove(Square moveSquare) {
+        if (selectedSquare == null) {
+            return Move.NONE;
+        }
+
+        final MoveList moves = getLegalMoves();
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            if (Move.getFrom(move) == selectedSquare.getIndex() && Move.getTo(move) == moveSquare.getIndex()) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Gets the possible moves the selected piece can make
+     *
+     * @return the possible moves the selected piece can make, as a read-only view that follows the selection
+     */
+    public Set<Square> getSelectedPossibleMoves() {
+        return selectedPossibleMovesView;
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    public Player getCurrentPlayer() {
+        return board.getSideToMove();
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    /**
+     * Returns true if a player's king is attacked
+     *
+     * @param player the player
+     * @return true if the player is in check
+     */
+    public boolean isInCheck(Player player) {
+        return board.isSquareAttacked(getKingSquare(player).getIndex(), player.getOpponent());
+    }
+
+    private Square getKingSquare(Player player) {
+        long kings = board.getOccupancy(PieceType.KING, player);
+        if (kings == 0) {
+            throw new IllegalStateException("Could not find king on the board");
+        }
+
+        return board.getSquare(Long.numberOfTrailingZeros(kings));
+    }
+}
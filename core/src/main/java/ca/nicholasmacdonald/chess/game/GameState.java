@@ -22,4 +22,13 @@ public enum GameState {
     public String getDescription() {
         return description;
     }
+
+    /**
+     * Returns true if no more moves can be made
+     *
+     * @return true if the game is over
+     */
+    public boolean isGameOver() {
+        return this == BLACK_CHECKMATE || this == WHITE_CHECKMATE || this == STALEMATE;
+    }
 }
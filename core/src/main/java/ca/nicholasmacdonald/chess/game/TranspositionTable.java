@@ -0,0 +1,203 @@
+package ca.nicholasmacdonald.chess.game;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size cache of per-position results keyed by {@link ca.nicholasmacdonald.chess.board.Board#positionKey()}.
+ * <p>
+ * Entries are packed into a single long and stored next to the position key xor'd with the entry, all in one
+ * preallocated {@link AtomicLongArray}. Readers check that the two halves still match the key, so a torn write from
+ * another thread simply looks like a miss and no locking is needed. Positions map to a bucket of two slots: the first
+ * keeps the deeper of its old and new entries, the second always takes the newest entry.
+ *
+ * @author Nicholas MacDonald
+ */
+public class TranspositionTable {
+    public static final int ENTRY_SIZE_IN_BYTES = 2 * Long.BYTES;
+
+    // Bounds for search scores
+    public static final int BOUND_NONE = 0;
+    public static final int BOUND_EXACT = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_UPPER = 3;
+
+    // Entry layout
+    private static final int MOVE_SHIFT = 0;
+    private static final long MOVE_MASK = 0xFFFFFL;
+    private static final int SCORE_SHIFT = 20;
+    private static final long SCORE_MASK = 0xFFFFL;
+    private static final int DEPTH_SHIFT = 36;
+    private static final long DEPTH_MASK = 0xFFL;
+    private static final int BOUND_SHIFT = 44;
+    private static final long BOUND_MASK = 0x3L;
+    private static final int STATE_SHIFT = 46;
+    private static final long STATE_MASK = 0x7L;
+    private static final int MOVE_COUNT_SHIFT = 49;
+    private static final long MOVE_COUNT_MASK = 0xFFL;
+
+    private static final GameState[] STATES = GameState.values();
+
+    // Set on every stored entry so an entry is never 0, which marks an empty slot
+    private static final long PRESENT = 1L << 63;
+
+    private final AtomicLongArray slots;
+    private final int indexMask;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder replacements;
+
+    /**
+     * Creates a table that uses at most the given amount of memory. The memory is allocated up front.
+     *
+     * @param sizeInBytes the memory to use, rounded down to a power of two number of entries
+     * @throws IllegalArgumentException if there is not enough memory for one bucket
+     */
+    public TranspositionTable(long sizeInBytes) {
+        final long entries = Long.highestOneBit(sizeInBytes / ENTRY_SIZE_IN_BYTES);
+        if (entries < 2 || entries > 1 << 29) {
+            throw new IllegalArgumentException("Can not create transposition table of " + sizeInBytes + " bytes");
+        }
+
+        this.slots = new AtomicLongArray((int) entries * 2);
+        this.indexMask = (int) entries - 1;
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.replacements = new LongAdder();
+    }
+
+    /**
+     * Looks up the entry for a position
+     *
+     * @param key the position key
+     * @return the packed entry, or 0 if the position is not in the table
+     */
+    public long probe(long key) {
+        final int bucket = (int) key & indexMask & ~1;
+
+        for (int slot = bucket; slot <= bucket + 1; slot++) {
+            final long entry = slots.get(slot * 2 + 1);
+            if (entry != 0 && (slots.get(slot * 2) ^ entry) == key) {
+                hits.increment();
+                return entry;
+            }
+        }
+
+        misses.increment();
+        return 0;
+    }
+
+    /**
+     * Stores the entry for a position
+     *
+     * @param key the position key
+     * @param entry the packed entry, from {@link #pack(int, int, int, int, GameState, int)}
+     */
+    public void store(long key, long entry) {
+        final int bucket = (int) key & indexMask & ~1;
+        final long deepEntry = slots.get(bucket * 2 + 1);
+        final boolean deepMatches = deepEntry != 0 && (slots.get(bucket * 2) ^ deepEntry) == key;
+
+        // Keep the deeper result in the first slot, and send everything else to the second
+        final int slot = deepMatches || deepEntry == 0 || getDepth(entry) >= getDepth(deepEntry) ? bucket : bucket + 1;
+
+        final long oldEntry = slots.get(slot * 2 + 1);
+        if (oldEntry != 0 && (slots.get(slot * 2) ^ oldEntry) != key) {
+            replacements.increment();
+        }
+
+        slots.set(slot * 2 + 1, entry);
+        slots.set(slot * 2, key ^ entry);
+    }
+
+    /**
+     * Empties the table and resets the counters
+     */
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, 0);
+        }
+
+        hits.reset();
+        misses.reset();
+        replacements.reset();
+    }
+
+    public int getCapacity() {
+        return indexMask + 1;
+    }
+
+    public long getSizeInBytes() {
+        return (long) getCapacity() * ENTRY_SIZE_IN_BYTES;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of times an entry for one position was overwritten by another position
+     *
+     * @return the number of replacements
+     */
+    public long getReplacements() {
+        return replacements.sum();
+    }
+
+    /**
+     * Packs the results for a position into an entry
+     *
+     * @param move the best move, or {@link ca.nicholasmacdonald.chess.move.Move#NONE}
+     * @param score the search score, between {@link Short#MIN_VALUE} and {@link Short#MAX_VALUE}
+     * @param depth the depth the score was searched to, between 0 and 255
+     * @param bound what kind of bound the score is, e.g. {@link #BOUND_EXACT}
+     * @param state the state of the game in the position, or null if it is not known
+     * @param legalMoveCount the number of legal moves in the position
+     * @return the packed entry
+     */
+    public static long pack(int move, int score, int depth, int bound, GameState state, int legalMoveCount) {
+        return PRESENT |
+                ((move & MOVE_MASK) << MOVE_SHIFT) |
+                ((score & SCORE_MASK) << SCORE_SHIFT) |
+                ((depth & DEPTH_MASK) << DEPTH_SHIFT) |
+                ((bound & BOUND_MASK) << BOUND_SHIFT) |
+                ((state == null ? 0 : state.ordinal() + 1L) << STATE_SHIFT) |
+                ((legalMoveCount & MOVE_COUNT_MASK) << MOVE_COUNT_SHIFT);
+    }
+
+    public static int getMove(long entry) {
+        return (int) ((entry >>> MOVE_SHIFT) & MOVE_MASK);
+    }
+
+    public static int getScore(long entry) {
+        return (short) ((entry >>> SCORE_SHIFT) & SCORE_MASK);
+    }
+
+    public static int getDepth(long entry) {
+        return (int) ((entry >>> DEPTH_SHIFT) & DEPTH_MASK);
+    }
+
+    public static int getBound(long entry) {
+        return (int) ((entry >>> BOUND_SHIFT) & BOUND_MASK);
+    }
+
+    /**
+     * Gets the state of the game stored in an entry
+     *
+     * @param entry the packed entry
+     * @return the state, or null if the entry does not hold one
+     */
+    public static GameState getState(long entry) {
+        final int state = (int) ((entry >>> STATE_SHIFT) & STATE_MASK);
+        return state == 0 ? null : STATES[state - 1];
+    }
+
+    public static int getLegalMoveCount(long entry) {
+        return (int) ((entry >>> MOVE_COUNT_SHIFT) & MOVE_COUNT_MASK);
+    }
+}
@@ -0,0 +1,62 @@
+package ca.nicholasmacdonald.chess.move;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.piece.Piece;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+/**
+ * Generates moves from {@link Piece#getLegalMoves(Board, int, MoveList)}, then removes every move that leaves the
+ * king in check by trying it on the board. Slower than {@link LegalMoveGenerator}, but it only relies on the pieces'
+ * own move rules, so it is useful for checking the other generator.
+ *
+ * @author Nicholas MacDonald
+ */
+public class FilteringMoveGenerator implements MoveGenerator {
+    @Override
+    public void generateMoves(Board board, Player player, MoveList moves) {
+        moves.clear();
+        for (long occupancy = board.getOccupancy(player); occupancy != 0; occupancy &= occupancy - 1) {
+            final int index = Long.numberOfTrailingZeros(occupancy);
+            board.getPiece(index).getLegalMoves(board, index, moves);
+        }
+        removeMovesIntoCheck(board, player, moves);
+    }
+
+    @Override
+    public void generateMoves(Board board, int index, MoveList moves) {
+        moves.clear();
+        Piece piece = board.getPiece(index);
+        piece.getLegalMoves(board, index, moves);
+        removeMovesIntoCheck(board, piece.getPlayer(), moves);
+    }
+
+    private void removeMovesIntoCheck(Board board, Player player, MoveList moves) {
+        for (int i = moves.size() - 1; i >= 0; i--) {
+            if (isPlayerInCheckAfterMove(board, player, moves.get(i))) {
+                moves.remove(i);
+            }
+        }
+    }
+
+    private boolean isPlayerInCheckAfterMove(Board board, Player player, int move) {
+        final int from = Move.getFrom(move);
+        final int to = Move.getTo(move);
+
+        Piece currentPiece = board.getPiece(from);
+        Piece movePiece = board.getPiece(to);
+
+        // Make the temporary move
+        board.setPiece(from, null);
+        board.setPiece(to, Move.isPromotion(move) ? Piece.of(PieceType.QUEEN, player) : currentPiece);
+
+        // Check if in check
+        final int kingIndex = Long.numberOfTrailingZeros(board.getOccupancy(PieceType.KING, player));
+        boolean check = board.isSquareAttacked(kingIndex, player.getOpponent());
+
+        // Undo the temporary move after checking
+        board.setPiece(from, currentPiece);
+        board.setPiece(to, movePiece);
+        return check;
+    }
+}
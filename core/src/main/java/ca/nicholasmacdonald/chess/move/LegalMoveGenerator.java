@@ -0,0 +1,124 @@
+package ca.nicholasmacdonald.chess.move;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.piece.Attacks;
+import ca.nicholasmacdonald.chess.piece.Piece;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+/**
+ * Generates only legal moves, without trying any of them on the board.
+ * <p>
+ * Once per position it works out which enemy pieces give check, which squares would block or capture a single
+ * checker, and which of the player's pieces are pinned to their king. Every piece is then limited to the squares
+ * that keep the king safe before its moves are added.
+ *
+ * @author Nicholas MacDonald
+ */
+public class LegalMoveGenerator implements MoveGenerator {
+    @Override
+    public void generateMoves(Board board, Player player, MoveList moves) {
+        moves.clear();
+        generateMoves(board, player, board.getOccupancy(player), moves);
+    }
+
+    @Override
+    public void generateMoves(Board board, int index, MoveList moves) {
+        moves.clear();
+        generateMoves(board, board.getPiece(index).getPlayer(), 1L << index, moves);
+    }
+
+    private void generateMoves(Board board, Player player, long fromMask, MoveList moves) {
+        final Player enemy = player.getOpponent();
+        final long occupancy = board.getOccupancy();
+        final long kingMask = board.getOccupancy(PieceType.KING, player);
+        final int king = Long.numberOfTrailingZeros(kingMask);
+
+        // The king can go anywhere it is not attacked - look through the king itself so it can't step back along a checking line
+        if ((fromMask & kingMask) != 0) {
+            final long occupancyWithoutKing = occupancy ^ kingMask;
+            final long enemies = board.getOccupancy(enemy);
+
+            for (long targets = Attacks.kingAttacks(king) & ~board.getOccupancy(player); targets != 0; targets &= targets - 1) {
+                final int to = Long.numberOfTrailingZeros(targets);
+                if (board.getAttackers(to, enemy, occupancyWithoutKing) == 0) {
+                    moves.add(Move.of(king, to, (enemies & (1L << to)) != 0 ? Move.CAPTURE : 0));
+                }
+            }
+        }
+
+        // Only the king can escape from double check
+        final long checkers = board.getAttackers(king, enemy, occupancy);
+        if (Long.bitCount(checkers) > 1) {
+            return;
+        }
+
+        // With a single checker, every other move has to capture it or block it
+        final long checkMask = checkers == 0 ? ~0L : checkers | Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+        final long pinned = getPinnedPieces(board, player, king);
+
+        final long enemies = board.getOccupancy(enemy);
+        final long allowed = ~board.getOccupancy(player);
+
+        for (long pieces = fromMask & ~kingMask; pieces != 0; pieces &= pieces - 1) {
+            final int from = Long.numberOfTrailingZeros(pieces);
+            final Piece piece = board.getPiece(from);
+
+            // A pinned piece can only move along the line between its king and the pinning piece
+            final long targets = (pinned & (1L << from)) != 0 ? checkMask & Attacks.line(king, from) : checkMask;
+
+            // Look the attacks up directly rather than asking the piece, so there is no virtual call per piece
+            switch (piece.getType()) {
+                case PAWN:
+                    // Pawns have pushes, double pushes and promotions to work out
+                    piece.getLegalMoves(board, from, targets, moves);
+                    break;
+                case KNIGHT:
+                    addMoves(from, Attacks.knightAttacks(from) & allowed & targets, enemies, moves);
+                    break;
+                case BISHOP:
+                    addMoves(from, Attacks.bishopAttacks(from, occupancy) & allowed & targets, enemies, moves);
+                    break;
+                case ROOK:
+                    addMoves(from, Attacks.rookAttacks(from, occupancy) & allowed & targets, enemies, moves);
+                    break;
+                case QUEEN:
+                    addMoves(from, Attacks.queenAttacks(from, occupancy) & allowed & targets, enemies, moves);
+                    break;
+                default:
+                    throw new IllegalStateException("More than one king on the board");
+            }
+        }
+    }
+
+    private static void addMoves(int from, long targets, long enemies, MoveList moves) {
+        for (; targets != 0; targets &= targets - 1) {
+            final int to = Long.numberOfTrailingZeros(targets);
+            moves.add(Move.of(from, to, (enemies & (1L << to)) != 0 ? Move.CAPTURE : 0));
+        }
+    }
+
+    /**
+     * Finds the player's pieces that are the only piece between their king and an enemy rook, bishop or queen
+     */
+    private long getPinnedPieces(Board board, Player player, int king) {
+        final long occupancy = board.getOccupancy();
+        final long enemies = board.getOccupancy(player.getOpponent());
+        final long queens = board.getOccupancy(PieceType.QUEEN);
+
+        // Enemy sliders that would attack the king if only enemy pieces could block them
+        final long pinners = enemies & (
+                (Attacks.rookAttacks(king, enemies) & (board.getOccupancy(PieceType.ROOK) | queens)) |
+                (Attacks.bishopAttacks(king, enemies) & (board.getOccupancy(PieceType.BISHOP) | queens)));
+
+        long pinned = 0;
+        for (long candidates = pinners; candidates != 0; candidates &= candidates - 1) {
+            final long blockers = Attacks.between(king, Long.numberOfTrailingZeros(candidates)) & occupancy;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & board.getOccupancy(player);
+            }
+        }
+
+        return pinned;
+    }
+}
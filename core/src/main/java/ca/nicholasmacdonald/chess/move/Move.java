@@ -0,0 +1,106 @@
+package ca.nicholasmacdonald.chess.move;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+
+/**
+ * Encodes a move as a primitive int so move lists never allocate.
+ * <p>
+ * Bits 0-5 hold the index of the square moved from, bits 6-11 the index of the square moved to,
+ * bits 12-14 the flags and bits 15-17 the type a promoted pawn becomes.
+ *
+ * @author Nicholas MacDonald
+ */
+public final class Move {
+    // No move - a piece can never move to the square it is on, so this never collides with a real move
+    public static final int NONE = 0;
+
+    public static final int CAPTURE = 1 << 12;
+    public static final int PROMOTION = 1 << 13;
+    public static final int DOUBLE_PUSH = 1 << 14;
+
+    private static final int SQUARE_MASK = 0x3F;
+    private static final int TO_SHIFT = 6;
+    private static final int PROMOTION_TYPE_SHIFT = 15;
+    private static final int PROMOTION_TYPE_MASK = 0x7;
+
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private Move() {
+    }
+
+    /**
+     * Creates a move
+     *
+     * @param from the index of the square moved from
+     * @param to the index of the square moved to
+     * @param flags any combination of {@link #CAPTURE} and {@link #DOUBLE_PUSH}
+     * @return the encoded move
+     */
+    public static int of(int from, int to, int flags) {
+        return from | (to << TO_SHIFT) | flags;
+    }
+
+    /**
+     * Creates a pawn move that ends in a promotion
+     *
+     * @param from the index of the square moved from
+     * @param to the index of the square moved to
+     * @param flags {@link #CAPTURE} if the promotion also captures, otherwise 0
+     * @param promotionType the type the pawn becomes
+     * @return the encoded move
+     */
+    public static int promotion(int from, int to, int flags, PieceType promotionType) {
+        return of(from, to, flags | PROMOTION) | (promotionType.ordinal() << PROMOTION_TYPE_SHIFT);
+    }
+
+    public static int getFrom(int move) {
+        return move & SQUARE_MASK;
+    }
+
+    public static int getTo(int move) {
+        return (move >>> TO_SHIFT) & SQUARE_MASK;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & PROMOTION) != 0;
+    }
+
+    public static boolean isDoublePush(int move) {
+        return (move & DOUBLE_PUSH) != 0;
+    }
+
+    /**
+     * Gets the type a promoted pawn becomes
+     *
+     * @param move the move
+     * @return the promotion type, or null if the move is not a promotion
+     */
+    public static PieceType getPromotionType(int move) {
+        return isPromotion(move) ? TYPES[(move >>> PROMOTION_TYPE_SHIFT) & PROMOTION_TYPE_MASK] : null;
+    }
+
+    /**
+     * Gets the name of a square in algebraic notation, e.g. e4
+     *
+     * @param index the index of the square
+     * @return the name of the square
+     */
+    public static String getSquareName(int index) {
+        return "" + (char) ('a' + Board.getX(index)) + (Board.NUMBER_OF_SQUARES_IN_LINE - Board.getY(index));
+    }
+
+    /**
+     * Formats a move in coordinate notation, e.g. e2e4
+     *
+     * @param move the move
+     * @return the move as a string
+     */
+    public static String toString(int move) {
+        return getSquareName(getFrom(move)) + getSquareName(getTo(move));
+    }
+}
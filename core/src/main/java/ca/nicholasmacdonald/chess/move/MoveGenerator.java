@@ -0,0 +1,29 @@
+package ca.nicholasmacdonald.chess.move;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+/**
+ * Generates the moves that do not leave the moving player's king in check
+ *
+ * @author Nicholas MacDonald
+ */
+public interface MoveGenerator {
+    /**
+     * Fills a move list with every legal move a player can make
+     *
+     * @param board the board
+     * @param player the player to generate moves for
+     * @param moves the list to fill, which is cleared first
+     */
+    void generateMoves(Board board, Player player, MoveList moves);
+
+    /**
+     * Fills a move list with every legal move the piece on a square can make
+     *
+     * @param board the board
+     * @param index the index of the square, which must hold a piece
+     * @param moves the list to fill, which is cleared first
+     */
+    void generateMoves(Board board, int index, MoveList moves);
+}
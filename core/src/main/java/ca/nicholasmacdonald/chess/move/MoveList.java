@@ -0,0 +1,97 @@
+package ca.nicholasmacdonald.chess.move;
+
+/**
+ * A reusable buffer of encoded moves that generators fill in place
+ *
+ * @author Nicholas MacDonald
+ * @see Move
+ */
+public class MoveList {
+    // No chess position has more than 218 legal moves
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int[] moves;
+    private int size;
+
+    public MoveList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public MoveList(int capacity) {
+        this.moves = new int[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Adds a move to the end of the list
+     *
+     * @param move the encoded move
+     * @throws IllegalStateException if the list is full
+     */
+    public void add(int move) {
+        if (size == moves.length) {
+            throw new IllegalStateException("Move list is full: " + size + " moves");
+        }
+
+        moves[size++] = move;
+    }
+
+    /**
+     * Gets the move at a position in the list
+     *
+     * @param i the position
+     * @return the encoded move
+     */
+    public int get(int i) {
+        return moves[i];
+    }
+
+    /**
+     * Replaces the move at a position in the list
+     *
+     * @param i the position
+     * @param move the encoded move
+     */
+    public void set(int i, int move) {
+        moves[i] = move;
+    }
+
+    /**
+     * Removes the move at a position by moving the last move into its place, so the order of the list is not kept
+     *
+     * @param i the position
+     */
+    public void remove(int i) {
+        moves[i] = moves[--size];
+    }
+
+    /**
+     * Returns true if the list holds the given move
+     *
+     * @param move the encoded move
+     * @return true if the list holds the move
+     */
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Empties the list without releasing its buffer
+     */
+    public void clear() {
+        size = 0;
+    }
+}
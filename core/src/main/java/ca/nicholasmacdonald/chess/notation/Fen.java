@@ -0,0 +1,178 @@
+package ca.nicholasmacdonald.chess.notation;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.piece.Piece;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation. Castling rights and en passant squares are accepted but
+ * ignored, since the game has neither rule, and are always written as "-".
+ * <p>
+ * Positions can be read straight into an existing board from any {@link CharSequence}, so reading many positions
+ * doesn't need a new board or string for each one.
+ *
+ * @author Nicholas MacDonald
+ */
+public final class Fen {
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+
+    // Indexed by piece id
+    private static final String PIECE_LETTERS = "pnbrqkPNBRQK";
+    private static final Player[] PLAYERS = Player.values();
+
+    private Fen() {
+    }
+
+    /**
+     * Creates a board holding the position described by a FEN string
+     *
+     * @param fen the FEN string
+     * @return the board
+     * @throws IllegalArgumentException if the string is not a valid position
+     */
+    public static Board parse(String fen) {
+        Board board = new Board();
+        parse(fen, board);
+        return board;
+    }
+
+    /**
+     * Replaces the position on a board with the one described by a FEN record. Only the piece placement and the side
+     * to move are read, and anything after them is ignored, so EPD records can be read too.
+     *
+     * @param fen the FEN record
+     * @param board the board to set up
+     * @return the index in the record just after the side to move
+     * @throws IllegalArgumentException if the record is not a valid position
+     */
+    public static int parse(CharSequence fen, Board board) {
+        board.clear();
+
+        final int length = fen.length();
+        int i = skipWhitespace(fen, 0);
+
+        // The first row is black's back row, which is at the top of the board
+        int x = 0;
+        int y = 0;
+        for (; i < length && !Character.isWhitespace(fen.charAt(i)); i++) {
+            final char c = fen.charAt(i);
+
+            if (c == '/') {
+                if (x != Board.NUMBER_OF_SQUARES_IN_LINE) {
+                    throw invalid("wrong number of squares in row " + (y + 1), fen);
+                }
+                x = 0;
+                y++;
+                if (y == Board.NUMBER_OF_SQUARES_IN_LINE) {
+                    throw invalid("expected 8 rows", fen);
+                }
+            } else if (c >= '1' && c <= '8') {
+                x += c - '0';
+            } else if (x < Board.NUMBER_OF_SQUARES_IN_LINE) {
+                board.setPiece(Board.getIndex(x++, y), getPiece(c, fen));
+            } else {
+                throw invalid("too many squares in row " + (y + 1), fen);
+            }
+        }
+
+        if (y != Board.NUMBER_OF_SQUARES_IN_LINE - 1) {
+            throw invalid("expected 8 rows", fen);
+        }
+        if (x != Board.NUMBER_OF_SQUARES_IN_LINE) {
+            throw invalid("wrong number of squares in row " + (y + 1), fen);
+        }
+
+        // Moves can't be generated without exactly one king each
+        for (Player player : PLAYERS) {
+            if (Long.bitCount(board.getOccupancy(PieceType.KING, player)) != 1) {
+                throw invalid("expected one " + player.name().toLowerCase() + " king", fen);
+            }
+        }
+
+        // The side to move is optional, and white moves first if it is left out
+        i = skipWhitespace(fen, i);
+        if (i < length) {
+            final boolean endOfField = i + 1 == length || Character.isWhitespace(fen.charAt(i + 1));
+            final char side = fen.charAt(i);
+
+            if (endOfField && side == 'w') {
+                board.setSideToMove(Player.WHITE);
+            } else if (endOfField && side == 'b') {
+                board.setSideToMove(Player.BLACK);
+            } else {
+                throw invalid("unknown side to move", fen);
+            }
+            i++;
+        }
+
+        return i;
+    }
+
+    /**
+     * Writes the position on a board as a FEN string
+     *
+     * @param board the board
+     * @return the FEN string
+     */
+    public static String toFen(Board board) {
+        final StringBuilder builder = new StringBuilder(90);
+        write(board, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Writes the position on a board in FEN to the end of a builder. There are no move counters on the board, so the
+     * half move clock is always 0 and the move number is always 1.
+     *
+     * @param board the board
+     * @param builder the builder to append to
+     */
+    public static void write(Board board, StringBuilder builder) {
+        for (int y = 0; y < Board.NUMBER_OF_SQUARES_IN_LINE; y++) {
+            if (y > 0) {
+                builder.append('/');
+            }
+
+            int empty = 0;
+            for (int x = 0; x < Board.NUMBER_OF_SQUARES_IN_LINE; x++) {
+                final Piece piece = board.getPiece(Board.getIndex(x, y));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+
+                if (empty > 0) {
+                    builder.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                builder.append(PIECE_LETTERS.charAt(piece.getId()));
+            }
+
+            if (empty > 0) {
+                builder.append((char) ('0' + empty));
+            }
+        }
+
+        builder.append(board.getSideToMove() == Player.WHITE ? " w" : " b").append(" - - 0 1");
+    }
+
+    private static Piece getPiece(char c, CharSequence fen) {
+        final int id = PIECE_LETTERS.indexOf(c);
+        if (id < 0) {
+            throw invalid("unknown piece '" + c + "'", fen);
+        }
+        return Piece.of(id);
+    }
+
+    private static int skipWhitespace(CharSequence text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static IllegalArgumentException invalid(String reason, CharSequence fen) {
+        return new IllegalArgumentException("Invalid FEN, " + reason + ": " + fen);
+    }
+}
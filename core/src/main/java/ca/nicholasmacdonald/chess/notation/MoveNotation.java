@@ -0,0 +1,242 @@
+package ca.nicholasmacdonald.chess.notation;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.move.MoveList;
+import ca.nicholasmacdonald.chess.piece.Piece;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+
+/**
+ * Converts between encoded moves and the two common ways of writing them: coordinate notation (e2e4, e7e8q) and
+ * standard algebraic notation (e4, Nxf3, exd8=Q+).
+ * <p>
+ * Moves are always read by matching against the legal moves of the position, so a move that parses but is not legal
+ * is treated the same as one that does not parse.
+ *
+ * @author Nicholas MacDonald
+ */
+public final class MoveNotation {
+    private static final String PIECE_LETTERS = "PNBRQK";
+
+    private MoveNotation() {
+    }
+
+    /**
+     * Finds the legal move written in either coordinate or standard algebraic notation
+     *
+     * @param notation the written move
+     * @param board the board the move is played on
+     * @param legalMoves the legal moves of the player to move
+     * @return the move, or {@link Move#NONE} if no single legal move matches
+     */
+    public static int parse(CharSequence notation, Board board, MoveList legalMoves) {
+        final int move = parseCoordinate(notation, legalMoves);
+        return move != Move.NONE ? move : parseAlgebraic(notation, board, legalMoves);
+    }
+
+    /**
+     * Finds the legal move written in coordinate notation, such as e2e4 or e7e8q
+     *
+     * @param notation the written move
+     * @param legalMoves the legal moves of the player to move
+     * @return the move, or {@link Move#NONE} if no legal move matches
+     */
+    public static int parseCoordinate(CharSequence notation, MoveList legalMoves) {
+        final int length = notation.length();
+        if (length != 4 && length != 5) {
+            return Move.NONE;
+        }
+
+        final int from = parseSquare(notation.charAt(0), notation.charAt(1));
+        final int to = parseSquare(notation.charAt(2), notation.charAt(3));
+        final PieceType promotionType = length == 5 ? getType(Character.toUpperCase(notation.charAt(4))) : null;
+        if (from < 0 || to < 0 || (length == 5 && promotionType == null)) {
+            return Move.NONE;
+        }
+
+        for (int i = 0; i < legalMoves.size(); i++) {
+            final int move = legalMoves.get(i);
+            if (Move.getFrom(move) == from && Move.getTo(move) == to && (promotionType == null || Move.getPromotionType(move) == promotionType)) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Finds the legal move written in standard algebraic notation, such as e4, Nbd7, exd8=Q or Qh4#
+     *
+     * @param notation the written move
+     * @param board the board the move is played on
+     * @param legalMoves the legal moves of the player to move
+     * @return the move, or {@link Move#NONE} if no single legal move matches
+     */
+    public static int parseAlgebraic(CharSequence notation, Board board, MoveList legalMoves) {
+        int end = notation.length();
+
+        // Check, mate and annotation marks don't change the move
+        while (end > 0 && "+#!?".indexOf(notation.charAt(end - 1)) >= 0) {
+            end--;
+        }
+
+        // Promotion, written as =Q or just Q
+        PieceType promotionType = null;
+        if (end > 0 && getType(notation.charAt(end - 1)) != null && getType(notation.charAt(end - 1)) != PieceType.PAWN) {
+            promotionType = getType(notation.charAt(end - 1));
+            end--;
+            if (end > 0 && notation.charAt(end - 1) == '=') {
+                end--;
+            }
+        }
+
+        if (end < 2) {
+            return Move.NONE;
+        }
+
+        final int to = parseSquare(notation.charAt(end - 2), notation.charAt(end - 1));
+        if (to < 0) {
+            return Move.NONE;
+        }
+
+        int start = 0;
+        PieceType type = PieceType.PAWN;
+        if (Character.isUpperCase(notation.charAt(0))) {
+            type = getType(notation.charAt(0));
+            if (type == null) {
+                return Move.NONE;
+            }
+            start = 1;
+        }
+
+        // Whatever is left between the piece and the destination is disambiguation and the capture mark
+        int fromX = -1;
+        int fromY = -1;
+        for (int i = start; i < end - 2; i++) {
+            final char c = notation.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromX = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromY = Board.NUMBER_OF_SQUARES_IN_LINE - (c - '0');
+            } else if (c != 'x' && c != ':' && c != '-') {
+                return Move.NONE;
+            }
+        }
+
+        int match = Move.NONE;
+        for (int i = 0; i < legalMoves.size(); i++) {
+            final int move = legalMoves.get(i);
+            final int from = Move.getFrom(move);
+
+            if (Move.getTo(move) == to &&
+                    board.getPiece(from).getType() == type &&
+                    (fromX < 0 || Board.getX(from) == fromX) &&
+                    (fromY < 0 || Board.getY(from) == fromY) &&
+                    (promotionType == null || Move.getPromotionType(move) == promotionType)) {
+                if (match != Move.NONE) {
+                    return Move.NONE;
+                }
+                match = move;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * Writes a move in coordinate notation
+     *
+     * @param move the move
+     * @return the written move, e.g. e2e4 or e7e8q
+     */
+    public static String toCoordinate(int move) {
+        final String squares = Move.toString(move);
+        return Move.isPromotion(move) ? squares + Character.toLowerCase(getLetter(Move.getPromotionType(move))) : squares;
+    }
+
+    /**
+     * Writes a move in standard algebraic notation, without the check or mate mark since that depends on the position
+     * after the move
+     *
+     * @param move the move, which must be legal
+     * @param board the board before the move is made
+     * @param legalMoves the legal moves of the player to move, used to decide how much disambiguation is needed
+     * @return the written move, e.g. Nbd7 or exd8=Q
+     */
+    public static String toAlgebraic(int move, Board board, MoveList legalMoves) {
+        final int from = Move.getFrom(move);
+        final int to = Move.getTo(move);
+        final Piece piece = board.getPiece(from);
+        StringBuilder builder = new StringBuilder(8);
+
+        if (piece.getType() == PieceType.PAWN) {
+            if (Move.isCapture(move)) {
+                builder.append(getFile(from)).append('x');
+            }
+        } else {
+            builder.append(getLetter(piece.getType()));
+
+            // Name the file, the rank or both if another piece of the same type could also move there
+            boolean ambiguous = false;
+            boolean sameFile = false;
+            boolean sameRank = false;
+            for (int i = 0; i < legalMoves.size(); i++) {
+                final int other = Move.getFrom(legalMoves.get(i));
+                if (other != from && Move.getTo(legalMoves.get(i)) == to && board.getPiece(other).getType() == piece.getType()) {
+                    ambiguous = true;
+                    sameFile |= Board.getX(other) == Board.getX(from);
+                    sameRank |= Board.getY(other) == Board.getY(from);
+                }
+            }
+
+            if (ambiguous) {
+                if (!sameFile) {
+                    builder.append(getFile(from));
+                } else if (!sameRank) {
+                    builder.append(getRank(from));
+                } else {
+                    builder.append(getFile(from)).append(getRank(from));
+                }
+            }
+
+            if (Move.isCapture(move)) {
+                builder.append('x');
+            }
+        }
+
+        builder.append(getFile(to)).append(getRank(to));
+
+        if (Move.isPromotion(move)) {
+            builder.append('=').append(getLetter(Move.getPromotionType(move)));
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Gets the index of a square from its file and rank characters
+     *
+     * @return the index, or -1 if the characters are not a square
+     */
+    private static int parseSquare(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+            return -1;
+        }
+        return Board.getIndex(file - 'a', Board.NUMBER_OF_SQUARES_IN_LINE - (rank - '0'));
+    }
+
+    private static PieceType getType(char letter) {
+        final int index = PIECE_LETTERS.indexOf(letter);
+        return index < 0 ? null : PieceType.values()[index];
+    }
+
+    private static char getLetter(PieceType type) {
+        return PIECE_LETTERS.charAt(type.ordinal());
+    }
+
+    private static char getFile(int index) {
+        return (char) ('a' + Board.getX(index));
+    }
+
+    private static char getRank(int index) {
+        return (char) ('0' + Board.NUMBER_OF_SQUARES_IN_LINE - Board.getY(index));
+    }
+}
@@ -0,0 +1,287 @@
+package ca.nicholasmacdonald.chess.piece;
+
+import ca.nicholasmacdonald.chess.board.Board;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed attack tables for every piece type, built once when the class is loaded.
+ * <p>
+ * Knights, kings and pawns use a fixed mask per square. Bishops and rooks use magic
+ * bitboards: the blockers on a square's rays are multiplied by a magic number and shifted
+ * down to an index into that square's table of attack masks.
+ *
+ * @author Nicholas MacDonald
+ */
+public final class Attacks {
+    private static final int[][] KNIGHT_OFFSETS = {
+            {1, -2}, {2, -1}, {2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {-1, -2}
+    };
+
+    private static final Direction[] BISHOP_DIRECTIONS = {
+            Direction.NORTH_EAST, Direction.SOUTH_EAST, Direction.SOUTH_WEST, Direction.NORTH_WEST
+    };
+
+    private static final Direction[] ROOK_DIRECTIONS = {
+            Direction.NORTH, Direction.EAST, Direction.SOUTH, Direction.WEST
+    };
+
+    // Seed for the magic number search, fixed so every run builds the same tables
+    private static final long MAGIC_SEED = 0x2545F4914F6CDD1DL;
+
+    private static final long[] KNIGHT_ATTACKS = new long[Board.NUMBER_OF_SQUARES];
+    private static final long[] KING_ATTACKS = new long[Board.NUMBER_OF_SQUARES];
+    private static final long[][] PAWN_ATTACKS = new long[Player.values().length][Board.NUMBER_OF_SQUARES];
+
+    // Squares strictly between two squares, and the whole line through them, if they share a line
+    private static final long[][] BETWEEN = new long[Board.NUMBER_OF_SQUARES][Board.NUMBER_OF_SQUARES];
+    private static final long[][] LINE = new long[Board.NUMBER_OF_SQUARES][Board.NUMBER_OF_SQUARES];
+
+    private static final Magic[] BISHOP_MAGICS = new Magic[Board.NUMBER_OF_SQUARES];
+    private static final Magic[] ROOK_MAGICS = new Magic[Board.NUMBER_OF_SQUARES];
+
+    static {
+        for (int index = 0; index < Board.NUMBER_OF_SQUARES; index++) {
+            final int x = Board.getX(index);
+            final int y = Board.getY(index);
+
+            for (int[] offset : KNIGHT_OFFSETS) {
+                KNIGHT_ATTACKS[index] |= bitAt(x + offset[0], y + offset[1]);
+            }
+
+            for (Direction direction : Direction.values()) {
+                KING_ATTACKS[index] |= bitAt(x + direction.getDiffX(), y + direction.getDiffY());
+            }
+
+            PAWN_ATTACKS[Player.BLACK.ordinal()][index] = bitAt(x - 1, y + 1) | bitAt(x + 1, y + 1);
+            PAWN_ATTACKS[Player.WHITE.ordinal()][index] = bitAt(x - 1, y - 1) | bitAt(x + 1, y - 1);
+
+            for (Direction direction : Direction.values()) {
+                final long ray = slidingAttacks(index, new Direction[]{direction}, 0);
+                final long line = ray | slidingAttacks(index, new Direction[]{direction.getOpposite()}, 0) | (1L << index);
+
+                long between = 0;
+                for (int i = x + direction.getDiffX(), j = y + direction.getDiffY(); bitAt(i, j) != 0; i += direction.getDiffX(), j += direction.getDiffY()) {
+                    final int other = Board.getIndex(i, j);
+                    BETWEEN[index][other] = between;
+                    LINE[index][other] = line;
+                    between |= 1L << other;
+                }
+            }
+        }
+
+        long[] seed = {MAGIC_SEED};
+        for (int index = 0; index < Board.NUMBER_OF_SQUARES; index++) {
+            BISHOP_MAGICS[index] = new Magic(index, BISHOP_DIRECTIONS, seed);
+            ROOK_MAGICS[index] = new Magic(index, ROOK_DIRECTIONS, seed);
+        }
+    }
+
+    private Attacks() {
+    }
+
+    /**
+     * Gets the squares a knight attacks
+     *
+     * @param index the index of the knight's square
+     * @return the attack mask
+     */
+    public static long knightAttacks(int index) {
+        return KNIGHT_ATTACKS[index];
+    }
+
+    /**
+     * Gets the squares a king attacks
+     *
+     * @param index the index of the king's square
+     * @return the attack mask
+     */
+    public static long kingAttacks(int index) {
+        return KING_ATTACKS[index];
+    }
+
+    /**
+     * Gets the squares a pawn attacks diagonally
+     *
+     * @param index the index of the pawn's square
+     * @param player the player that owns the pawn
+     * @return the attack mask
+     */
+    public static long pawnAttacks(int index, Player player) {
+        return PAWN_ATTACKS[player.ordinal()][index];
+    }
+
+    /**
+     * Gets the squares a bishop attacks, up to and including the first blocker on each diagonal
+     *
+     * @param index the index of the bishop's square
+     * @param occupancy the mask of every occupied square
+     * @return the attack mask
+     */
+    public static long bishopAttacks(int index, long occupancy) {
+        return BISHOP_MAGICS[index].attacks(occupancy);
+    }
+
+    /**
+     * Gets the squares a rook attacks, up to and including the first blocker on each line
+     *
+     * @param index the index of the rook's square
+     * @param occupancy the mask of every occupied square
+     * @return the attack mask
+     */
+    public static long rookAttacks(int index, long occupancy) {
+        return ROOK_MAGICS[index].attacks(occupancy);
+    }
+
+    /**
+     * Gets the squares a queen attacks, up to and including the first blocker on each line
+     *
+     * @param index the index of the queen's square
+     * @param occupancy the mask of every occupied square
+     * @return the attack mask
+     */
+    public static long queenAttacks(int index, long occupancy) {
+        return bishopAttacks(index, occupancy) | rookAttacks(index, occupancy);
+    }
+
+    /**
+     * Gets the squares strictly between two squares
+     *
+     * @param from the index of one square
+     * @param to the index of the other square
+     * @return the squares between them, or 0 if the squares do not share a rank, file or diagonal
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Gets the whole rank, file or diagonal that runs through two squares
+     *
+     * @param from the index of one square
+     * @param to the index of the other square
+     * @return the line through both squares, or 0 if they do not share one
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    private static long bitAt(int x, int y) {
+        return x >= 0 && x < Board.NUMBER_OF_SQUARES_IN_LINE && y >= 0 && y < Board.NUMBER_OF_SQUARES_IN_LINE
+                ? 1L << Board.getIndex(x, y)
+                : 0;
+    }
+
+    /**
+     * Walks the rays from a square one step at a time - only used to build the tables
+     */
+    private static long slidingAttacks(int index, Direction[] directions, long occupancy) {
+        long attacks = 0;
+
+        for (Direction direction : directions) {
+            int x = Board.getX(index) + direction.getDiffX();
+            int y = Board.getY(index) + direction.getDiffY();
+
+            while (bitAt(x, y) != 0) {
+                final long bit = bitAt(x, y);
+                attacks |= bit;
+                if ((occupancy & bit) != 0) {
+                    break;
+                }
+
+                x += direction.getDiffX();
+                y += direction.getDiffY();
+            }
+        }
+
+        return attacks;
+    }
+
+    /**
+     * The magic lookup for one square of one sliding piece type
+     */
+    private static final class Magic {
+        private final long mask;
+        private final long magic;
+        private final int shift;
+        private final long[] attacks;
+
+        Magic(int index, Direction[] directions, long[] seed) {
+            this.mask = relevantOccupancy(index, directions);
+
+            final int bits = Long.bitCount(mask);
+            final int size = 1 << bits;
+            this.shift = Long.SIZE - bits;
+
+            // Enumerate every subset of the mask along with the attacks it produces
+            long[] occupancies = new long[size];
+            long[] references = new long[size];
+            long subset = 0;
+            for (int i = 0; i < size; i++) {
+                occupancies[i] = subset;
+                references[i] = slidingAttacks(index, directions, subset);
+                subset = (subset - mask) & mask;
+            }
+
+            // Try sparse random numbers until one maps every subset without a destructive collision
+            long[] table = new long[size];
+            long candidate;
+            boolean found;
+            do {
+                candidate = nextRandom(seed) & nextRandom(seed) & nextRandom(seed);
+                if (Long.bitCount((mask * candidate) & 0xFF00000000000000L) < 6) {
+                    found = false;
+                    continue;
+                }
+
+                Arrays.fill(table, 0);
+                found = true;
+                for (int i = 0; i < size && found; i++) {
+                    final int key = (int) ((occupancies[i] * candidate) >>> shift);
+                    if (table[key] == 0) {
+                        table[key] = references[i];
+                    } else if (table[key] != references[i]) {
+                        found = false;
+                    }
+                }
+            } while (!found);
+
+            this.magic = candidate;
+            this.attacks = table;
+        }
+
+        long attacks(long occupancy) {
+            return attacks[(int) (((occupancy & mask) * magic) >>> shift)];
+        }
+
+        /**
+         * The squares along the rays that can block, which excludes the last square on each ray
+         */
+        private static long relevantOccupancy(int index, Direction[] directions) {
+            long mask = 0;
+
+            for (Direction direction : directions) {
+                int x = Board.getX(index) + direction.getDiffX();
+                int y = Board.getY(index) + direction.getDiffY();
+
+                while (bitAt(x + direction.getDiffX(), y + direction.getDiffY()) != 0) {
+                    mask |= bitAt(x, y);
+                    x += direction.getDiffX();
+                    y += direction.getDiffY();
+                }
+            }
+
+            return mask;
+        }
+
+        private static long nextRandom(long[] seed) {
+            // xorshift64*
+            long s = seed[0];
+            s ^= s >>> 12;
+            s ^= s << 25;
+            s ^= s >>> 27;
+            seed[0] = s;
+            return s * 0x2545F4914F6CDD1DL;
+        }
+    }
+}
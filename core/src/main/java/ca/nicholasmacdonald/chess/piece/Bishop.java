@@ -0,0 +1,19 @@
+package ca.nicholasmacdonald.chess.piece;
+
+import ca.nicholasmacdonald.chess.board.Board;
+
+/**
+ * The bishop
+ *
+ * @author Nicholas MacDonald
+ */
+public class Bishop extends Piece {
+    Bishop(Player player) {
+        super(PieceType.BISHOP, player);
+    }
+
+    @Override
+    public long getAttacks(Board board, int index) {
+        return Attacks.bishopAttacks(index, board.getOccupancy());
+    }
+}
@@ -30,4 +30,13 @@ public enum Direction {
     public int getDiffY() {
         return diffY;
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the direction pointing the opposite way
+     *
+     * @return the opposite direction
+     */
+    public Direction getOpposite() {
+        return values()[(ordinal() + values().length / 2) % values().length];
+    }
+}
@@ -0,0 +1,19 @@
+package ca.nicholasmacdonald.chess.piece;
+
+import ca.nicholasmacdonald.chess.board.Board;
+
+/**
+ * The king
+ *
+ * @author Nicholas MacDonald
+ */
+public class King extends Piece {
+    King(Player player) {
+        super(PieceType.KING, player);
+    }
+
+    @Override
+    public long getAttacks(Board board, int index) {
+        return Attacks.kingAttacks(index);
+    }
+}
@@ -0,0 +1,20 @@
+package ca.nicholasmacdonald.chess.piece;
+
+import ca.nicholasmacdonald.chess.board.Board;
+
+/**
+ * The knight
+ *
+ * @author Nicholas MacDonald
+ */
+public class Knight extends Piece {
+    Knight(Player player) {
+        super(PieceType.KNIGHT, player);
+    }
+
+    @Override
+    public long getAttacks(Board board, int index) {
+        // Knights can jump over pieces
+        return Attacks.knightAttacks(index);
+    }
+}
@@ -0,0 +1,71 @@
+package ca.nicholasmacdonald.chess.piece;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.move.MoveList;
+
+/**
+ * The pawn
+ *
+ * @author Nicholas MacDonald
+ */
+public class Pawn extends Piece {
+    Pawn(Player colour) {
+        super(PieceType.PAWN, colour);
+    }
+
+    private boolean hasMoved(int index) {
+        return getPlayer() == Player.BLACK ? Board.getY(index) != 1 : Board.getY(index) != Board.NUMBER_OF_SQUARES_IN_LINE - 2;
+    }
+
+    @Override
+    public long getAttacks(Board board, int index) {
+        return Attacks.pawnAttacks(index, getPlayer());
+    }
+
+    @Override
+    public long getMoves(Board board, int index) {
+        final long occupancy = board.getOccupancy();
+        final int step = getPlayer() == Player.BLACK ? Board.NUMBER_OF_SQUARES_IN_LINE : -Board.NUMBER_OF_SQUARES_IN_LINE;
+
+        // Advancing moves can not capture, attacking moves must capture
+        long moves = getAttacks(board, index) & board.getOccupancy(getPlayer().getOpponent());
+
+        final int y = Board.getY(index);
+        if (y == 0 || y == Board.NUMBER_OF_SQUARES_IN_LINE - 1) {
+            return moves;
+        }
+
+        final long single = 1L << (index + step);
+        if ((occupancy & single) == 0) {
+            moves |= single;
+
+            final long twice = 1L << (index + 2 * step);
+            if (!hasMoved(index) && (occupancy & twice) == 0) {
+                moves |= twice;
+            }
+        }
+
+        return moves;
+    }
+
+    @Override
+    public void getLegalMoves(Board board, int index, long targets, MoveList moves) {
+        final long enemies = board.getOccupancy(getPlayer().getOpponent());
+        final int endY = getPlayer() == Player.BLACK ? Board.NUMBER_OF_SQUARES_IN_LINE - 1 : 0;
+
+        for (long mask = getMoves(board, index) & targets; mask != 0; mask &= mask - 1) {
+            final int to = Long.numberOfTrailingZeros(mask);
+            final int flags = (enemies & (1L << to)) != 0 ? Move.CAPTURE : 0;
+
+            if (Board.getY(to) == endY) {
+                // A pawn that reaches the end is always turned into a queen
+                moves.add(Move.promotion(index, to, flags, PieceType.QUEEN));
+            } else if (Math.abs(to - index) == 2 * Board.NUMBER_OF_SQUARES_IN_LINE) {
+                moves.add(Move.of(index, to, Move.DOUBLE_PUSH));
+            } else {
+                moves.add(Move.of(index, to, flags));
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ca.nicholasmacdonald.chess.piece;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.move.MoveList;
+
+/**
+ * A piece that can be on a square.
+ * <p>
+ * Pieces hold no state other than their type and player, so there is only ever one piece of each type for each
+ * player, shared by every board. Get them with {@link #of(PieceType, Player)}.
+ *
+ * @author Nicholas MacDonald
+ */
+public abstract class Piece {
+    private static final int NUMBER_OF_TYPES = PieceType.values().length;
+    public static final int NUMBER_OF_PIECES = NUMBER_OF_TYPES * Player.values().length;
+
+    private final PieceType type;
+    private final Player player;
+    private final int id;
+
+    Piece(PieceType type, Player player) {
+        this.type = type;
+        this.player = player;
+        this.id = getId(type, player);
+    }
+
+    /**
+     * Gets the only piece of the given type and player
+     *
+     * @param type the piece type
+     * @param player the player
+     * @return the piece
+     */
+    public static Piece of(PieceType type, Player player) {
+        return Pieces.PIECES[getId(type, player)];
+    }
+
+    /**
+     * Gets the piece with the given id
+     *
+     * @param id the id, from 0 to {@link #NUMBER_OF_PIECES} - 1
+     * @return the piece
+     * @see #getId()
+     */
+    public static Piece of(int id) {
+        return Pieces.PIECES[id];
+    }
+
+    private static int getId(PieceType type, Player player) {
+        return player.ordinal() * NUMBER_OF_TYPES + type.ordinal();
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Gets the type of the piece
+     *
+     * @return the piece type
+     */
+    public final PieceType getType() {
+        return type;
+    }
+
+    /**
+     * Gets a number that is different for every type and player, for indexing arrays by piece
+     *
+     * @return the id, from 0 to {@link #NUMBER_OF_PIECES} - 1
+     */
+    public final int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the squares the piece attacks, including squares occupied by its own player
+     *
+     * @param board the board
+     * @param index the index of the square that the piece is currently on
+     * @return the attack mask
+     */
+    public abstract long getAttacks(Board board, int index);
+
+    /**
+     * Gets the squares the piece can move to, ignoring whether the move leaves its king in check
+     *
+     * @param board the board
+     * @param index the index of the square that the piece is currently on
+     * @return the move mask
+     */
+    public long getMoves(Board board, int index) {
+        return getAttacks(board, index) & ~board.getOccupancy(player);
+    }
+
+    /**
+     * Adds the current legal moves the piece can make to a move list, ignoring whether the move leaves its king in check
+     *
+     * @param board the board
+     * @param index the index of the square that the piece is currently on
+     * @param moves the list to add the moves to
+     */
+    public void getLegalMoves(Board board, int index, MoveList moves) {
+        getLegalMoves(board, index, ~0L, moves);
+    }
+
+    /**
+     * Adds the current legal moves the piece can make to a move list, keeping only the moves that end on the given squares
+     *
+     * @param board the board
+     * @param index the index of the square that the piece is currently on
+     * @param targets the mask of squares the piece is allowed to move to
+     * @param moves the list to add the moves to
+     */
+    public void getLegalMoves(Board board, int index, long targets, MoveList moves) {
+        final long enemies = board.getOccupancy(player.getOpponent());
+
+        for (long mask = getMoves(board, index) & targets; mask != 0; mask &= mask - 1) {
+            final int to = Long.numberOfTrailingZeros(mask);
+            moves.add(Move.of(index, to, (enemies & (1L << to)) != 0 ? Move.CAPTURE : 0));
+        }
+    }
+
+    // Don't override equals - Only ever check reference
+
+    /**
+     * Holds the pieces, so they are created after Piece itself has been initialised
+     */
+    private static final class Pieces {
+        private static final Piece[] PIECES = new Piece[NUMBER_OF_PIECES];
+
+        static {
+            for (Player player : Player.values()) {
+                add(new Pawn(player));
+                add(new Knight(player));
+                add(new Bishop(player));
+                add(new Rook(player));
+                add(new Queen(player));
+                add(new King(player));
+            }
+        }
+
+        private static void add(Piece piece) {
+            PIECES[piece.getId()] = piece;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ca.nicholasmacdonald.chess.piece;
+
+/**
+ * The different types of pieces, used to index the board's occupancy masks
+ *
+ * @author Nicholas MacDonald
+ */
+public enum PieceType {
+    PAWN,
+    KNIGHT,
+    BISHOP,
+    ROOK,
+    QUEEN,
+    KING
+}
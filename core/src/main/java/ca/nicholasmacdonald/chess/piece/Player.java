@@ -18,4 +18,13 @@ public enum Player {
     public String getName() {
         return name;
     }
+
+    /**
+     * Gets the player on the other side of the board
+     *
+     * @return the opponent
+     */
+    public Player getOpponent() {
+        return this == BLACK ? WHITE : BLACK;
+    }
 }
@@ -0,0 +1,19 @@
+package ca.nicholasmacdonald.chess.piece;
+
+import ca.nicholasmacdonald.chess.board.Board;
+
+/**
+ * The queen
+ *
+ * @author Nicholas MacDonald
+ */
+public class Queen extends Piece {
+    Queen(Player player) {
+        super(PieceType.QUEEN, player);
+    }
+
+    @Override
+    public long getAttacks(Board board, int index) {
+        return Attacks.queenAttacks(index, board.getOccupancy());
+    }
+}
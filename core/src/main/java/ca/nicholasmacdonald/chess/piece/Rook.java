@@ -0,0 +1,19 @@
+package ca.nicholasmacdonald.chess.piece;
+
+import ca.nicholasmacdonald.chess.board.Board;
+
+/**
+ * The rook
+ *
+ * @author Nicholas MacDonald
+ */
+public class Rook extends Piece {
+    Rook(Player player) {
+        super(PieceType.ROOK, player);
+    }
+
+    @Override
+    public long getAttacks(Board board, int index) {
+        return Attacks.rookAttacks(index, board.getOccupancy());
+    }
+}
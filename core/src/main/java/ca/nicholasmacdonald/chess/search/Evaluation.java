@@ -0,0 +1,127 @@
+package ca.nicholasmacdonald.chess.search;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+/**
+ * Scores a position by material and piece placement
+ *
+ * @author Nicholas MacDonald
+ */
+public final class Evaluation {
+    // Indexed by piece type - the king is never captured, so it has no material value
+    private static final int[] PIECE_VALUES = {100, 320, 330, 500, 900, 0};
+
+    // Placement bonuses from white's side of the board, with black's back row first to match the board's indexes
+    private static final int[][] PLACEMENT = {
+            // Pawn
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    50, 50, 50, 50, 50, 50, 50, 50,
+                    10, 10, 20, 30, 30, 20, 10, 10,
+                    5, 5, 10, 25, 25, 10, 5, 5,
+                    0, 0, 0, 20, 20, 0, 0, 0,
+                    5, -5, -10, 0, 0, -10, -5, 5,
+                    5, 10, 10, -20, -20, 10, 10, 5,
+                    0, 0, 0, 0, 0, 0, 0, 0
+            },
+            // Knight
+            {
+                    -50, -40, -30, -30, -30, -30, -40, -50,
+                    -40, -20, 0, 0, 0, 0, -20, -40,
+                    -30, 0, 10, 15, 15, 10, 0, -30,
+                    -30, 5, 15, 20, 20, 15, 5, -30,
+                    -30, 0, 15, 20, 20, 15, 0, -30,
+                    -30, 5, 10, 15, 15, 10, 5, -30,
+                    -40, -20, 0, 5, 5, 0, -20, -40,
+                    -50, -40, -30, -30, -30, -30, -40, -50
+            },
+            // Bishop
+            {
+                    -20, -10, -10, -10, -10, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 10, 10, 5, 0, -10,
+                    -10, 5, 5, 10, 10, 5, 5, -10,
+                    -10, 0, 10, 10, 10, 10, 0, -10,
+                    -10, 10, 10, 10, 10, 10, 10, -10,
+                    -10, 5, 0, 0, 0, 0, 5, -10,
+                    -20, -10, -10, -10, -10, -10, -10, -20
+            },
+            // Rook
+            {
+                    0, 0, 0, 0, 0, 0, 0, 0,
+                    5, 10, 10, 10, 10, 10, 10, 5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    -5, 0, 0, 0, 0, 0, 0, -5,
+                    0, 0, 0, 5, 5, 0, 0, 0
+            },
+            // Queen
+            {
+                    -20, -10, -10, -5, -5, -10, -10, -20,
+                    -10, 0, 0, 0, 0, 0, 0, -10,
+                    -10, 0, 5, 5, 5, 5, 0, -10,
+                    -5, 0, 5, 5, 5, 5, 0, -5,
+                    0, 0, 5, 5, 5, 5, 0, -5,
+                    -10, 5, 5, 5, 5, 5, 0, -10,
+                    -10, 0, 5, 0, 0, 0, 0, -10,
+                    -20, -10, -10, -5, -5, -10, -10, -20
+            },
+            // King - stay sheltered behind the pawns
+            {
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -30, -40, -40, -50, -50, -40, -40, -30,
+                    -20, -30, -30, -40, -40, -30, -30, -20,
+                    -10, -20, -20, -20, -20, -20, -20, -10,
+                    20, 20, 0, 0, 0, 0, 20, 20,
+                    20, 30, 10, 0, 0, 10, 30, 20
+            }
+    };
+
+    private static final PieceType[] TYPES = PieceType.values();
+
+    // Flips an index to the other side of the board, so black can use white's placement tables
+    private static final int FLIP = Board.NUMBER_OF_SQUARES - Board.NUMBER_OF_SQUARES_IN_LINE;
+
+    private Evaluation() {
+    }
+
+    /**
+     * Gets the material value of a piece type
+     *
+     * @param type the piece type
+     * @return the value in centipawns
+     */
+    public static int getValue(PieceType type) {
+        return PIECE_VALUES[type.ordinal()];
+    }
+
+    /**
+     * Scores the position from the point of view of the player to move
+     *
+     * @param board the board
+     * @return the score in centipawns, positive if the player to move is ahead
+     */
+    public static int evaluate(Board board) {
+        int score = 0;
+
+        for (PieceType type : TYPES) {
+            final int value = PIECE_VALUES[type.ordinal()];
+            final int[] placement = PLACEMENT[type.ordinal()];
+
+            for (long pieces = board.getOccupancy(type, Player.WHITE); pieces != 0; pieces &= pieces - 1) {
+                score += value + placement[Long.numberOfTrailingZeros(pieces)];
+            }
+            for (long pieces = board.getOccupancy(type, Player.BLACK); pieces != 0; pieces &= pieces - 1) {
+                score -= value + placement[Long.numberOfTrailingZeros(pieces) ^ FLIP];
+            }
+        }
+
+        return board.getSideToMove() == Player.WHITE ? score : -score;
+    }
+}
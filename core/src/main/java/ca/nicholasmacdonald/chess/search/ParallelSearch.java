@@ -0,0 +1,191 @@
+package ca.nicholasmacdonald.chess.search;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.game.TranspositionTable;
+import ca.nicholasmacdonald.chess.move.LegalMoveGenerator;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.tablebase.Tablebase;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Searches a position on several threads at once.
+ * <p>
+ * Every thread runs its own {@link Search} from the same root on its own copy of the board. The threads don't talk to
+ * each other directly - they only share the transposition table, so a thread that reaches a position another thread
+ * has already searched can use its result. Half of the helper threads start one iteration deeper than the main
+ * thread so they spend their time on different parts of the tree. The calling thread is the main thread, and when it
+ * finishes the helpers are stopped and the result of the deepest finished iteration is returned.
+ *
+ * @author Nicholas MacDonald
+ */
+public class ParallelSearch {
+    private static final long DEFAULT_TABLE_SIZE_IN_BYTES = 64L * 1024 * 1024;
+
+    private final GameManager game;
+    private final TranspositionTable table;
+    private final int threads;
+    private final ExecutorService helpers;
+
+    // Each thread keeps its own game and search between calls, and only the root position is copied in
+    private final GameManager[] threadGames;
+    private final Search[] threadSearches;
+    private final ByteBuffer rootSnapshot = ByteBuffer.allocate(Board.SNAPSHOT_SIZE);
+
+    // The searches while one is running, for stop() to reach
+    private volatile Search[] searches;
+    private volatile boolean stopped;
+    // Set from the thread handling commands while another may be starting a search
+    private volatile Tablebase tablebase;
+
+    /**
+     * Creates a parallel search with its own transposition table
+     *
+     * @param game the game to search
+     * @param threads the number of threads to search on, including the calling thread
+     */
+    public ParallelSearch(GameManager game, int threads) {
+        this(game, threads, new TranspositionTable(DEFAULT_TABLE_SIZE_IN_BYTES));
+    }
+
+    /**
+     * Creates a parallel search that shares the given table between its threads
+     *
+     * @param game the game to search
+     * @param threads the number of threads to search on, including the calling thread
+     * @param table the transposition table
+     * @throws IllegalArgumentException if there is not at least one thread
+     */
+    public ParallelSearch(GameManager game, int threads, TranspositionTable table) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("A search needs at least one thread: " + threads);
+        }
+
+        this.game = game;
+        this.table = table;
+        this.threads = threads;
+        this.helpers = threads > 1 ? Executors.newFixedThreadPool(threads - 1, runnable -> {
+            final Thread thread = new Thread(runnable, "search-helper");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+
+        this.threadGames = new GameManager[threads];
+        this.threadSearches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            threadGames[i] = new GameManager(new Board(game.getBoard()), new LegalMoveGenerator(), null);
+            threadSearches[i] = new Search(threadGames[i], table);
+            threadSearches[i].setFirstDepth(1 + (i & 1));
+        }
+    }
+
+    /**
+     * Searches the current position of the game until the time budget runs out, the maximum depth is finished or
+     * {@link #stop()} is called
+     *
+     * @param timeBudgetMillis the time to search for
+     * @param maxDepth the deepest iteration to search
+     * @return the result of the deepest iteration finished by any thread, with the nodes of every thread
+     * @throws IllegalStateException if a helper thread fails or the calling thread is interrupted
+     */
+    public SearchResult search(long timeBudgetMillis, int maxDepth) {
+        final long start = System.nanoTime();
+        stopped = false;
+
+        // Each thread gets its own copy of the position to play moves on
+        rootSnapshot.clear();
+        game.snapshot(rootSnapshot);
+        final Search[] searches = threadSearches;
+        for (int i = 0; i < threads; i++) {
+            rootSnapshot.rewind();
+            threadGames[i].restore(rootSnapshot);
+            searches[i].clearStop();
+            searches[i].setTablebase(tablebase);
+        }
+        this.searches = searches;
+
+        // A stop while the threads were being set up found no searches to stop, so it is passed on now
+        if (stopped) {
+            stop();
+        }
+
+        final List<Future<SearchResult>> results = new ArrayList<>(threads - 1);
+        for (int i = 1; i < threads; i++) {
+            final Search search = searches[i];
+            results.add(helpers.submit(() -> search.run(timeBudgetMillis, maxDepth)));
+        }
+
+        SearchResult best = searches[0].run(timeBudgetMillis, maxDepth);
+        long nodes = best.getNodes();
+
+        for (int i = 1; i < threads; i++) {
+            searches[i].stop();
+        }
+
+        try {
+            for (Future<SearchResult> future : results) {
+                final SearchResult result = future.get();
+                nodes += result.getNodes();
+                if (result.getDepth() > best.getDepth() && result.getBestMove() != Move.NONE) {
+                    best = result;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the search threads", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A search thread failed", e.getCause());
+        } finally {
+            this.searches = null;
+        }
+
+        return new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(), nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. May be called from any thread, including while the search is
+     * still setting up its threads.
+     */
+    public void stop() {
+        stopped = true;
+        final Search[] searches = this.searches;
+        if (searches != null) {
+            for (Search search : searches) {
+                search.stop();
+            }
+        }
+    }
+
+    /**
+     * Stops the helper threads. The search can not be used afterwards.
+     */
+    public void shutdown() {
+        if (helpers != null) {
+            helpers.shutdownNow();
+        }
+    }
+
+    /**
+     * Sets the tablebase every thread looks endgames up in, from the next search
+     *
+     * @param tablebase the tablebase, or null to search every position
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+}
@@ -0,0 +1,482 @@
+package ca.nicholasmacdonald.chess.search;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.game.TranspositionTable;
+import ca.nicholasmacdonald.chess.move.LegalMoveGenerator;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.move.MoveGenerator;
+import ca.nicholasmacdonald.chess.move.MoveList;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+import ca.nicholasmacdonald.chess.tablebase.Tablebase;
+
+/**
+ * Finds the best move for the player to move with an alpha-beta search.
+ * <p>
+ * The search deepens one move at a time until its time budget runs out, then plays the best move of the deepest
+ * iteration it finished. Each leaf is extended with a search of captures only so it never stops in the middle of an
+ * exchange. Moves are tried in the order most likely to cause a cutoff: the best move remembered for the position,
+ * then captures of the most valuable piece by the least valuable attacker, then quiet moves that caused cutoffs at
+ * the same depth (killers), then the rest by how often they have caused cutoffs anywhere (history). Endgames in
+ * the tablebase, if there is one, are scored exactly instead of searched.
+ * <p>
+ * The search plays moves on the game with {@link GameManager#makeMove(int)} and takes them all back before
+ * returning, so the game must not be used by anything else while a search is running.
+ *
+ * @author Nicholas MacDonald
+ */
+public class Search {
+    public static final int MAX_PLY = 128;
+    public static final int MATE = 31000;
+    // Any score beyond this is a forced mate
+    public static final int MATE_THRESHOLD = MATE - MAX_PLY;
+
+    private static final int INFINITY = 32000;
+    private static final long DEFAULT_TABLE_SIZE_IN_BYTES = 16L * 1024 * 1024;
+
+    // How many nodes to search between looking at the clock
+    private static final int TIME_CHECK_MASK = 2047;
+
+    // Move ordering
+    private static final int TABLE_MOVE_SCORE = 1_000_000;
+    private static final int CAPTURE_SCORE = 100_000;
+    private static final int FIRST_KILLER_SCORE = 90_000;
+    private static final int SECOND_KILLER_SCORE = 80_000;
+    private static final int MAX_HISTORY_SCORE = 70_000;
+
+    private final GameManager game;
+    private final Board board;
+    private final MoveGenerator moveGenerator;
+    private final TranspositionTable table;
+    private Tablebase tablebase;
+
+    private final MoveList[] moveLists;
+    private final int[][] moveScores;
+    private final int[][] killers;
+    private final int[][] history;
+
+    private volatile boolean stopped;
+    private long deadline;
+    private long nodes;
+    private int rootBestMove;
+
+    // Helper threads of a parallel search start deeper so they don't all search the same tree
+    private int firstDepth = 1;
+
+    /**
+     * Creates a search with its own transposition table
+     *
+     * @param game the game to search
+     */
+    public Search(GameManager game) {
+        this(game, new TranspositionTable(DEFAULT_TABLE_SIZE_IN_BYTES));
+    }
+
+    /**
+     * Creates a search that stores its results in the given table, which may be shared
+     *
+     * @param game the game to search
+     * @param table the transposition table
+     */
+    public Search(GameManager game, TranspositionTable table) {
+        this.game = game;
+        this.board = game.getBoard();
+        this.moveGenerator = new LegalMoveGenerator();
+        this.table = table;
+        this.moveLists = new MoveList[MAX_PLY];
+        this.moveScores = new int[MAX_PLY][MoveList.DEFAULT_CAPACITY];
+        this.killers = new int[MAX_PLY][2];
+        this.history = new int[Player.values().length][Board.NUMBER_OF_SQUARES * Board.NUMBER_OF_SQUARES];
+
+        for (int i = 0; i < MAX_PLY; i++) {
+            this.moveLists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Searches until the time budget runs out
+     *
+     * @param timeBudgetMillis the time to search for
+     * @return the result of the deepest finished iteration
+     */
+    public SearchResult search(long timeBudgetMillis) {
+        return search(timeBudgetMillis, MAX_PLY - 1);
+    }
+
+    /**
+     * Searches until the time budget runs out, the maximum depth is finished or {@link #stop()} is called
+     *
+     * @param timeBudgetMillis the time to search for
+     * @param maxDepth the deepest iteration to search
+     * @return the result of the deepest finished iteration
+     */
+    public SearchResult search(long timeBudgetMillis, int maxDepth) {
+        stopped = false;
+        return run(timeBudgetMillis, maxDepth);
+    }
+
+    /**
+     * Searches like {@link #search(long, int)}, but returns straight away if {@link #stop()} was called before it
+     * started. Used by helper threads that may be stopped before they get going.
+     */
+    SearchResult run(long timeBudgetMillis, int maxDepth) {
+        final long start = System.nanoTime();
+        deadline = start + timeBudgetMillis * 1_000_000L;
+        nodes = 0;
+
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = Move.NONE;
+            plyKillers[1] = Move.NONE;
+        }
+
+        // Keep some of what was learnt last time, but let the new position take over quickly
+        for (int[] playerHistory : history) {
+            for (int i = 0; i < playerHistory.length; i++) {
+                playerHistory[i] /= 8;
+            }
+        }
+
+        MoveList rootMoves = moveLists[0];
+        moveGenerator.generateMoves(board, board.getSideToMove(), rootMoves);
+        if (rootMoves.isEmpty()) {
+            return new SearchResult(Move.NONE, game.isInCheck(board.getSideToMove()) ? -MATE : 0, 0, 0, System.nanoTime() - start);
+        }
+
+        int bestMove = rootMoves.get(0);
+        int bestScore = 0;
+        int completedDepth = 0;
+
+        for (int depth = firstDepth; depth <= maxDepth; depth++) {
+            rootBestMove = Move.NONE;
+            final int score = negamax(depth, -INFINITY, INFINITY, 0);
+
+            if (stopped) {
+                break;
+            }
+
+            bestMove = rootBestMove;
+            bestScore = score;
+            completedDepth = depth;
+
+            // Nothing deeper will find anything better than a forced mate
+            if (Math.abs(score) >= MATE_THRESHOLD || System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        return new SearchResult(bestMove, bestScore, completedDepth, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible. May be called from any thread.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Forgets a stop from an earlier search, before {@link #run(long, int)} is used for the next one
+     */
+    void clearStop() {
+        stopped = false;
+    }
+
+    /**
+     * Sets the tablebase to look endgames up in
+     *
+     * @param tablebase the tablebase, or null to search every position
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Sets the depth of the first iteration
+     *
+     * @param firstDepth the first depth, at least 1
+     */
+    void setFirstDepth(int firstDepth) {
+        this.firstDepth = firstDepth;
+    }
+
+    /**
+     * Gets the number of nodes searched so far by the current or last search
+     *
+     * @return the number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply) {
+        if (shouldStop()) {
+            return 0;
+        }
+
+        if (tablebase != null && ply > 0) {
+            final int probe = tablebase.probe(board);
+            if (probe != Tablebase.NOT_FOUND) {
+                return getTablebaseScore(probe, ply);
+            }
+        }
+
+        final Player player = board.getSideToMove();
+        final boolean inCheck = game.isInCheck(player);
+
+        // Never stand still in check
+        if (inCheck) {
+            depth++;
+        }
+
+        if (depth <= 0) {
+            return quiescence(alpha, beta, ply);
+        }
+
+        if (ply >= MAX_PLY - 1) {
+            return Evaluation.evaluate(board);
+        }
+
+        // Use what is already known about the position
+        final long key = board.positionKey();
+        final long entry = table == null ? 0 : table.probe(key);
+        final int tableMove = TranspositionTable.getMove(entry);
+        if (entry != 0 && ply > 0 && TranspositionTable.getDepth(entry) >= depth) {
+            final int tableScore = fromTableScore(TranspositionTable.getScore(entry), ply);
+            final int bound = TranspositionTable.getBound(entry);
+
+            if (bound == TranspositionTable.BOUND_EXACT ||
+                    (bound == TranspositionTable.BOUND_LOWER && tableScore >= beta) ||
+                    (bound == TranspositionTable.BOUND_UPPER && tableScore <= alpha)) {
+                return tableScore;
+            }
+        }
+
+        final MoveList moves = moveLists[ply];
+        moveGenerator.generateMoves(board, player, moves);
+        if (moves.isEmpty()) {
+            // Prefer the quickest mate
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        scoreMoves(moves, moveScores[ply], tableMove, ply);
+
+        final int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Move.NONE;
+
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = pickMove(moves, moveScores[ply], i);
+
+            game.makeMove(move);
+            final int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            game.unmakeMove();
+
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                if (ply == 0) {
+                    rootBestMove = move;
+                }
+
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        if (!Move.isCapture(move)) {
+                            rememberCutoff(move, player, depth, ply);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (table != null) {
+            final int bound = bestScore <= originalAlpha ? TranspositionTable.BOUND_UPPER
+                    : bestScore >= beta ? TranspositionTable.BOUND_LOWER
+                    : TranspositionTable.BOUND_EXACT;
+
+            // Keep the game state if the game has already cached it for this position
+            table.store(key, TranspositionTable.pack(bestMove, toTableScore(bestScore, ply), depth, bound,
+                    TranspositionTable.getState(entry), moves.size()));
+        }
+
+        return bestScore;
+    }
+
+    /**
+     * Searches captures until the position is quiet, so the evaluation is never taken halfway through an exchange
+     */
+    private int quiescence(int alpha, int beta, int ply) {
+        if (shouldStop()) {
+            return 0;
+        }
+
+        if (ply >= MAX_PLY - 1) {
+            return Evaluation.evaluate(board);
+        }
+
+        final Player player = board.getSideToMove();
+        final boolean inCheck = game.isInCheck(player);
+
+        // Unless in check, the player can choose not to capture anything
+        int bestScore = -INFINITY;
+        if (!inCheck) {
+            bestScore = Evaluation.evaluate(board);
+            if (bestScore >= beta) {
+                return bestScore;
+            }
+            alpha = Math.max(alpha, bestScore);
+        }
+
+        final MoveList moves = moveLists[ply];
+        moveGenerator.generateMoves(board, player, moves);
+        if (moves.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+
+        scoreMoves(moves, moveScores[ply], Move.NONE, ply);
+
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = pickMove(moves, moveScores[ply], i);
+
+            // Every move is considered when escaping check, otherwise only the ones that change the material
+            if (!inCheck && !Move.isCapture(move) && !Move.isPromotion(move)) {
+                continue;
+            }
+
+            game.makeMove(move);
+            final int score = -quiescence(-beta, -alpha, ply + 1);
+            game.unmakeMove();
+
+            if (stopped) {
+                return 0;
+            }
+
+            if (score > bestScore) {
+                bestScore = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        return bestScore;
+    }
+
+    private boolean shouldStop() {
+        if ((++nodes & TIME_CHECK_MASK) == 0 && System.nanoTime() >= deadline) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    private void scoreMoves(MoveList moves, int[] scores, int tableMove, int ply) {
+        final int[] playerHistory = history[board.getSideToMove().ordinal()];
+
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            final int from = Move.getFrom(move);
+            final int to = Move.getTo(move);
+
+            if (move == tableMove) {
+                scores[i] = TABLE_MOVE_SCORE;
+            } else if (Move.isCapture(move) || Move.isPromotion(move)) {
+                // Most valuable victim, least valuable attacker
+                final int victim = Move.isCapture(move) ? Evaluation.getValue(board.getPiece(to).getType()) : 0;
+                final int promotion = Move.isPromotion(move) ? Evaluation.getValue(PieceType.QUEEN) : 0;
+                scores[i] = CAPTURE_SCORE + (victim + promotion) * 8 - board.getPiece(from).getType().ordinal();
+            } else if (move == killers[ply][0]) {
+                scores[i] = FIRST_KILLER_SCORE;
+            } else if (move == killers[ply][1]) {
+                scores[i] = SECOND_KILLER_SCORE;
+            } else {
+                scores[i] = playerHistory[from * Board.NUMBER_OF_SQUARES + to];
+            }
+        }
+    }
+
+    /**
+     * Moves the highest scoring move left in the list to the given position and returns it
+     */
+    private static int pickMove(MoveList moves, int[] scores, int i) {
+        int best = i;
+        for (int j = i + 1; j < moves.size(); j++) {
+            if (scores[j] > scores[best]) {
+                best = j;
+            }
+        }
+
+        final int move = moves.get(best);
+        if (best != i) {
+            moves.set(best, moves.get(i));
+            moves.set(i, move);
+
+            final int score = scores[best];
+            scores[best] = scores[i];
+            scores[i] = score;
+        }
+        return move;
+    }
+
+    private void rememberCutoff(int move, Player player, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        final int[] playerHistory = history[player.ordinal()];
+        final int index = Move.getFrom(move) * Board.NUMBER_OF_SQUARES + Move.getTo(move);
+        playerHistory[index] += depth * depth;
+
+        // Keep history below the killers
+        if (playerHistory[index] >= MAX_HISTORY_SCORE) {
+            for (int i = 0; i < playerHistory.length; i++) {
+                playerHistory[i] /= 2;
+            }
+        }
+    }
+
+    /**
+     * Turns a tablebase result into a score counted from the root. A mate too far away to fit in the mate scores is
+     * kept just inside them, so it still counts as won or lost.
+     */
+    private static int getTablebaseScore(int probe, int ply) {
+        switch (Tablebase.getResult(probe)) {
+            case Tablebase.WIN:
+                return Math.max(MATE - ply - Tablebase.getDistance(probe), MATE_THRESHOLD + 1);
+            case Tablebase.LOSS:
+                return Math.min(-MATE + ply + Tablebase.getDistance(probe), -MATE_THRESHOLD - 1);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Mate scores are stored as the distance to mate from the stored position, not from the root
+     */
+    private static int toTableScore(int score, int ply) {
+        if (score >= MATE_THRESHOLD) {
+            return score + ply;
+        } else if (score <= -MATE_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTableScore(int score, int ply) {
+        if (score >= MATE_THRESHOLD) {
+            return score - ply;
+        } else if (score <= -MATE_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,72 @@
+package ca.nicholasmacdonald.chess.search;
+
+import ca.nicholasmacdonald.chess.move.Move;
+
+/**
+ * The outcome of a search: the move it chose and how much work it took to choose it
+ *
+ * @author Nicholas MacDonald
+ */
+public class SearchResult {
+    private final int bestMove;
+    private final int score;
+    private final int depth;
+    private final long nodes;
+    private final long nanos;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long nanos) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Gets the best move found
+     *
+     * @return the encoded move, or {@link Move#NONE} if the player to move has no moves
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Gets the score of the best move from the point of view of the player to move
+     *
+     * @return the score in centipawns, or a score beyond {@link Search#MATE_THRESHOLD} for a forced mate
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Gets the deepest iteration that was searched completely
+     *
+     * @return the depth in moves
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getNodesPerSecond() {
+        return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return "move " + (bestMove == Move.NONE ? "none" : Move.toString(bestMove)) +
+                ", score " + score +
+                ", depth " + depth +
+                ", nodes " + nodes +
+                ", nodes/sec " + getNodesPerSecond();
+    }
+}
@@ -0,0 +1,400 @@
+package ca.nicholasmacdonald.chess.server;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.move.LegalMoveGenerator;
+import ca.nicholasmacdonald.chess.move.MoveGenerator;
+import ca.nicholasmacdonald.chess.notation.Fen;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds many games at once and plays them for clients over TCP, one command and one response per line.
+ * <p>
+ * Every connection is read on its own thread, and a game is only locked by the command playing it, so connections
+ * playing different games never wait on each other. Games are not tied to a connection: any connection can play any
+ * game by its id, and games stay open when the connection that started them closes.
+ * <pre>
+ * new [FEN]        start a game, from the start position or a FEN  -&gt; ok ID
+ * move ID MOVE     play a move in coordinate or algebraic notation  -&gt; ok STATE
+ * undo ID          take back the last move                          -&gt; ok STATE
+ * moves ID         the legal moves in coordinate notation           -&gt; ok MOVE...
+ * fen ID           the position                                     -&gt; ok FEN
+ * state ID         the state of the game                            -&gt; ok STATE
+ * close ID         end a game and free it                           -&gt; ok
+ * stats            sessions, latency and memory as JSON             -&gt; ok {...}
+ * memory N         open N games to measure the memory of one        -&gt; ok {...}
+ * quit             close the connection
+ * </pre>
+ * States are the names of {@link ca.nicholasmacdonald.chess.game.GameState}. A command that fails is answered with
+ * {@code error} and the reason. Responses to commands sent without waiting are written back together.
+ * <pre>
+ * usage: GameServer [--port N] [--bind ADDRESS] [--max-sessions N]
+ * </pre>
+ *
+ * @author Nicholas MacDonald
+ */
+public class GameServer implements Closeable {
+    public static final int DEFAULT_PORT = 7878;
+    public static final int DEFAULT_MAX_SESSIONS = 100_000;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // Connection threads only parse lines and play moves, so they don't need the default stack
+    private static final long CONNECTION_STACK_SIZE = 256 * 1024;
+
+    // The heap has settled once a collection frees less than this, and has been disturbed if one leaves more than this
+    private static final long HEAP_SETTLE_TOLERANCE = 64 * 1024;
+    private static final int HEAP_SETTLE_COLLECTIONS = 10;
+
+    private final int maxSessions;
+    private final MoveGenerator moveGenerator = new LegalMoveGenerator();
+    private final ConcurrentHashMap<Integer, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    // A slot is taken here before a game is created, so connections opening games at once can't go over the most
+    private final AtomicInteger reservedSessions = new AtomicInteger();
+
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextConnection = new AtomicInteger(1);
+    private volatile ServerSocket serverSocket;
+
+    // Metrics
+    private final LongAdder totalConnections = new LongAdder();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+
+    /**
+     * Creates a server
+     *
+     * @param maxSessions the most games that can be open at once
+     */
+    public GameServer(int maxSessions) {
+        this.maxSessions = maxSessions;
+    }
+
+    /**
+     * Accepts connections until the server is closed, starting a thread for each one
+     *
+     * @param serverSocket the bound socket to accept on
+     * @throws IOException if accepting fails for any reason other than the server being closed
+     */
+    public void serve(ServerSocket serverSocket) throws IOException {
+        this.serverSocket = serverSocket;
+
+        while (!serverSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+
+            socket.setTcpNoDelay(true);
+            connections.add(socket);
+            totalConnections.increment();
+
+            final Thread thread = new Thread(null, () -> handle(socket), "connection-" + nextConnection.getAndIncrement(), CONNECTION_STACK_SIZE);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Reads commands from a connection and answers them until it is closed. Responses are only flushed once every
+     * command that has already arrived is answered.
+     */
+    private void handle(Socket socket) {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII), BUFFER_SIZE);
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII), BUFFER_SIZE)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                final String response = execute(line);
+                if (response == null) {
+                    break;
+                }
+
+                out.write(response);
+                out.write('\n');
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // The client went away - its games stay open for other connections
+        } finally {
+            connections.remove(socket);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+        }
+    }
+
+    /**
+     * Runs one command
+     *
+     * @param line the command
+     * @return the response, without the line break, or null if the connection should be closed
+     */
+    public String execute(String line) {
+        commands.increment();
+
+        final String[] words = line.trim().split("\\s+", 3);
+        try {
+            switch (words[0]) {
+                case "new":
+                    return "ok " + newSession(line.trim().substring(words[0].length()).trim());
+                case "move":
+                    return "ok " + playMove(getSession(words), getArgument(words, 2, "a move"));
+                case "undo":
+                    return "ok " + getSession(words).undoMove();
+                case "moves":
+                    return "ok " + getSession(words).getLegalMoves();
+                case "fen":
+                    return "ok " + getSession(words).getFen();
+                case "state":
+                    return "ok " + getSession(words).getState();
+                case "close":
+                    closeSession(getSession(words));
+                    return "ok";
+                case "stats":
+                    return "ok " + toJson();
+                case "memory":
+                    return "ok " + measureSessionMemory(getCount(getArgument(words, 1, "a number of games")));
+                case "quit":
+                    return null;
+                default:
+                    throw new IllegalArgumentException("Unknown command: " + words[0]);
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            errors.increment();
+            return "error " + e.getMessage();
+        }
+    }
+
+    private int newSession(String fen) {
+        if (reservedSessions.incrementAndGet() > maxSessions) {
+            reservedSessions.decrementAndGet();
+            throw new IllegalStateException("Too many games, the most is " + maxSessions);
+        }
+
+        try {
+            final Board board = fen.isEmpty() ? new Board() : Fen.parse(fen);
+            final Session session = new Session(nextId.getAndIncrement(), board, moveGenerator);
+            sessions.put(session.getId(), session);
+            return session.getId();
+        } catch (RuntimeException e) {
+            reservedSessions.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private String playMove(Session session, String notation) {
+        final long start = System.nanoTime();
+        try {
+            return session.playMove(notation);
+        } finally {
+            moveLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void closeSession(Session session) {
+        session.close();
+        if (sessions.remove(session.getId(), session)) {
+            reservedSessions.decrementAndGet();
+        }
+    }
+
+    private Session getSession(String[] words) {
+        final String argument = getArgument(words, 1, "a game id");
+
+        final int id;
+        try {
+            id = Integer.parseInt(argument);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid game id: " + argument);
+        }
+
+        final Session session = sessions.get(id);
+        if (session == null) {
+            throw new IllegalArgumentException("No game with id " + id);
+        }
+        return session;
+    }
+
+    private static int getCount(String argument) {
+        final int count;
+        try {
+            count = Integer.parseInt(argument);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number of games: " + argument);
+        }
+        if (count < 1) {
+            throw new IllegalArgumentException("Invalid number of games: " + argument);
+        }
+        return count;
+    }
+
+    /**
+     * Measures the memory an idle game holds by opening games from the start position between two settled samples of
+     * the heap, then closing them again
+     *
+     * @param count the number of games to open, more giving a closer estimate
+     * @return the memory a game and the samples it came from, as JSON
+     * @throws IllegalStateException if there isn't room for the games, or the samples can't be trusted because the
+     * heap didn't settle, grew while settling or didn't grow with the games
+     */
+    private String measureSessionMemory(int count) {
+        final int[] ids = new int[count];
+        int opened = 0;
+
+        final long before = getSettledHeapUsed();
+        try {
+            for (; opened < count; opened++) {
+                ids[opened] = newSession("");
+            }
+
+            final long after = getSettledHeapUsed();
+            if (after <= before) {
+                throw new IllegalStateException("The heap didn't grow with the games, so it can't be measured");
+            }
+
+            return "{\"sessions\":" + count +
+                    ",\"bytesPerSession\":" + (after - before) / count +
+                    ",\"heapBeforeBytes\":" + before +
+                    ",\"heapAfterBytes\":" + after +
+                    "}";
+        } finally {
+            for (int i = 0; i < opened; i++) {
+                final Session session = sessions.get(ids[i]);
+                if (session != null) {
+                    closeSession(session);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects garbage until a collection frees nothing more, and gets the heap left in use. Collections can only
+     * shrink the heap, so a sample that grows means another connection is allocating and the heap can't be measured.
+     */
+    private static long getSettledHeapUsed() {
+        System.gc();
+        long previous = getHeapUsed();
+
+        for (int i = 1; i < HEAP_SETTLE_COLLECTIONS; i++) {
+            System.gc();
+            final long used = getHeapUsed();
+            if (used > previous + HEAP_SETTLE_TOLERANCE) {
+                throw new IllegalStateException("The heap grew while it was being measured, so the server isn't idle");
+            }
+            if (previous - used <= HEAP_SETTLE_TOLERANCE) {
+                return used;
+            }
+            previous = used;
+        }
+
+        throw new IllegalStateException("The heap didn't settle after " + HEAP_SETTLE_COLLECTIONS + " collections");
+    }
+
+    private static long getHeapUsed() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static String getArgument(String[] words, int index, String description) {
+        if (words.length <= index) {
+            throw new IllegalArgumentException(words[0] + " needs " + description);
+        }
+        return words[index];
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    public LatencyHistogram getMoveLatency() {
+        return moveLatency;
+    }
+
+    /**
+     * Gets the metrics of the server as one line of JSON. The move latency is the time from a move command being read
+     * to the move being played, including any wait for another connection playing the same game. The heap used
+     * includes garbage that hasn't been collected yet, so the memory a game holds is measured by the {@code memory}
+     * command instead.
+     *
+     * @return the metrics
+     */
+    public String toJson() {
+        return "{\"sessions\":" + sessions.size() +
+                ",\"connections\":" + connections.size() +
+                ",\"totalConnections\":" + totalConnections.sum() +
+                ",\"commands\":" + commands.sum() +
+                ",\"errors\":" + errors.sum() +
+                moveLatency.toJsonFields("move") +
+                ",\"heapUsedBytes\":" + getHeapUsed() +
+                "}";
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones
+     */
+    @Override
+    public void close() throws IOException {
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String bind = "127.0.0.1";
+        int maxSessions = DEFAULT_MAX_SESSIONS;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--bind":
+                    bind = args[++i];
+                    break;
+                case "--max-sessions":
+                    maxSessions = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        try (GameServer server = new GameServer(maxSessions);
+             ServerSocket serverSocket = new ServerSocket()) {
+            serverSocket.bind(new InetSocketAddress(InetAddress.getByName(bind), port), 1024);
+            System.err.println("{\"listening\":\"" + bind + ":" + serverSocket.getLocalPort() + "\"}");
+            server.serve(serverSocket);
+        }
+    }
+}
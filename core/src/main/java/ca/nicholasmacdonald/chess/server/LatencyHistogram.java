@@ -0,0 +1,102 @@
+package ca.nicholasmacdonald.chess.server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Counts how long something took in buckets, so percentiles can be read while other threads are still recording.
+ * <p>
+ * Every power of two of nanoseconds is split into 8 equal buckets, so a percentile is never more than 12.5% above
+ * the true value. Recording is one atomic increment and doesn't allocate.
+ *
+ * @author Nicholas MacDonald
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(Long.SIZE << SUB_BUCKET_BITS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one measurement
+     *
+     * @param nanos how long it took, in nanoseconds
+     */
+    public void record(long nanos) {
+        final long value = Math.max(nanos, 0);
+        counts.incrementAndGet(getBucket(value));
+        max.accumulate(value);
+    }
+
+    /**
+     * Gets the number of measurements
+     *
+     * @return the count
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Gets the value that a fraction of the measurements were at or below
+     *
+     * @param fraction the fraction, such as 0.99 for the 99th percentile
+     * @return the value in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getPercentile(double fraction) {
+        final long target = (long) Math.ceil(fraction * getCount());
+
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target && seen > 0) {
+                return Math.min(getUpperBound(i), max.get());
+            }
+        }
+        return 0;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the main percentiles in microseconds, as the fields of a JSON object
+     *
+     * @param name the prefix of the field names
+     * @return the fields, with a leading comma
+     */
+    public String toJsonFields(String name) {
+        return ",\"" + name + "Count\":" + getCount() +
+                ",\"" + name + "P50Micros\":" + getPercentile(0.5) / 1000 +
+                ",\"" + name + "P99Micros\":" + getPercentile(0.99) / 1000 +
+                ",\"" + name + "P999Micros\":" + getPercentile(0.999) / 1000 +
+                ",\"" + name + "MaxMicros\":" + getMax() / 1000;
+    }
+
+    /**
+     * Values below 8 get a bucket each, and after that each power of two is split into 8 buckets
+     */
+    private static int getBucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    private static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        final long lower = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,238 @@
+package ca.nicholasmacdonald.chess.server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays random games against a {@link GameServer} from many connections at once and reports the round trip time of
+ * the moves, then has the server measure the memory an idle game holds.
+ * <pre>
+ * usage: LoadGenerator [--host HOST] [--port N] [--connections N] [--games N] [--max-moves N] [--idle N] [--seed N]
+ * </pre>
+ * The totals and the server's metrics are printed to standard error as JSON.
+ *
+ * @author Nicholas MacDonald
+ */
+public class LoadGenerator {
+    private final String host;
+    private final int port;
+    private final int maxMoves;
+    private final long seed;
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LatencyHistogram roundTrip = new LatencyHistogram();
+
+    public LoadGenerator(String host, int port, int maxMoves, long seed) {
+        this.host = host;
+        this.port = port;
+        this.maxMoves = maxMoves;
+        this.seed = seed;
+    }
+
+    /**
+     * Plays games on every connection until each has played its share
+     *
+     * @param connections the number of connections
+     * @param gamesPerConnection the number of games each connection plays, one after another
+     * @throws IllegalStateException if a connection fails or the calling thread is interrupted
+     */
+    public void play(int connections, int gamesPerConnection) {
+        final ExecutorService executor = Executors.newFixedThreadPool(connections);
+
+        try {
+            final List<Future<?>> workers = new ArrayList<>(connections);
+            for (int i = 0; i < connections; i++) {
+                final Random random = new Random(seed + i * 0x9E3779B97F4A7C15L);
+                workers.add(executor.submit(() -> {
+                    try (Client client = new Client()) {
+                        for (int game = 0; game < gamesPerConnection; game++) {
+                            playGame(client, random);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while playing games", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A connection failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void playGame(Client client, Random random) throws IOException {
+        final String id = client.call("new");
+
+        for (int ply = 0; ply < maxMoves; ply++) {
+            final String[] legalMoves = client.call("moves " + id).split(" ");
+            if (legalMoves[0].isEmpty()) {
+                break;
+            }
+
+            final long start = System.nanoTime();
+            client.call("move " + id + " " + legalMoves[random.nextInt(legalMoves.length)]);
+            roundTrip.record(System.nanoTime() - start);
+            moves.increment();
+        }
+
+        client.call("close " + id);
+        games.increment();
+    }
+
+    /**
+     * Has the server measure the memory an idle game holds, from settled samples of its heap taken before and after
+     * opening the games. The server should have no other connections playing while it does.
+     *
+     * @param count the number of games the server opens, and closes again afterwards
+     * @return the memory a game, as JSON
+     * @throws IOException if the connection fails
+     * @throws IllegalStateException if the server couldn't measure it
+     */
+    public String measureIdle(int count) throws IOException {
+        try (Client client = new Client()) {
+            return client.call("memory " + count);
+        }
+    }
+
+    /**
+     * Gets the server's metrics
+     *
+     * @return the metrics as JSON
+     * @throws IOException if the connection fails
+     */
+    public String getStats() throws IOException {
+        try (Client client = new Client()) {
+            return client.call("stats");
+        }
+    }
+
+    /**
+     * Gets the totals as one line of JSON
+     *
+     * @param nanos how long the games took, for the throughput
+     * @return the totals
+     */
+    public String toJson(long nanos) {
+        final double seconds = nanos / 1e9;
+        return "{\"games\":" + games.sum() +
+                ",\"moves\":" + moves.sum() +
+                ",\"millis\":" + nanos / 1_000_000 +
+                ",\"movesPerSecond\":" + (seconds == 0 ? 0 : (long) (moves.sum() / seconds)) +
+                roundTrip.toJsonFields("roundTrip") +
+                "}";
+    }
+
+    /**
+     * A connection that sends one command and waits for its response
+     */
+    private final class Client implements AutoCloseable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Client() throws IOException {
+            this.socket = new Socket(host, port);
+            this.socket.setTcpNoDelay(true);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+        }
+
+        String call(String command) throws IOException {
+            out.write(command);
+            out.write('\n');
+            out.flush();
+            return read();
+        }
+
+        /**
+         * Reads a response, without its leading ok
+         *
+         * @throws IllegalStateException if the server answered with an error
+         */
+        String read() throws IOException {
+            final String line = in.readLine();
+            if (line == null) {
+                throw new IOException("The server closed the connection");
+            }
+            if (!line.startsWith("ok")) {
+                throw new IllegalStateException("The server answered " + line);
+            }
+            return line.length() > 2 ? line.substring(3) : "";
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String host = "127.0.0.1";
+        int port = GameServer.DEFAULT_PORT;
+        int connections = 64;
+        int gamesPerConnection = 20;
+        int maxMoves = 200;
+        int idle = 0;
+        long seed = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--connections":
+                    connections = Integer.parseInt(args[++i]);
+                    break;
+                case "--games":
+                    gamesPerConnection = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-moves":
+                    maxMoves = Integer.parseInt(args[++i]);
+                    break;
+                case "--idle":
+                    idle = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        final LoadGenerator generator = new LoadGenerator(host, port, maxMoves, seed);
+
+        final long start = System.nanoTime();
+        generator.play(connections, gamesPerConnection);
+        System.err.println(generator.toJson(System.nanoTime() - start));
+
+        System.err.println(generator.getStats());
+        if (idle > 0) {
+            System.err.println(generator.measureIdle(idle));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package ca.nicholasmacdonald.chess.server;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.move.MoveGenerator;
+import ca.nicholasmacdonald.chess.move.MoveList;
+import ca.nicholasmacdonald.chess.notation.Fen;
+import ca.nicholasmacdonald.chess.notation.MoveNotation;
+
+/**
+ * One game held by a {@link GameServer}. Any number of connections can play the same game, so every method locks
+ * the session, and games on other sessions are never held up by it.
+ *
+ * @author Nicholas MacDonald
+ */
+final class Session {
+    private final int id;
+    private final GameManager game;
+    private boolean closed;
+
+    /**
+     * Creates a session
+     *
+     * @param id the id the session is known by
+     * @param board the position to start from, which the session takes ownership of
+     * @param moveGenerator the move generator, which may be shared between sessions
+     */
+    Session(int id, Board board, MoveGenerator moveGenerator) {
+        this.id = id;
+        this.game = new GameManager(board, moveGenerator, null);
+    }
+
+    int getId() {
+        return id;
+    }
+
+    /**
+     * Plays a move in coordinate or algebraic notation
+     *
+     * @param notation the move
+     * @return the state of the game after the move
+     * @throws IllegalArgumentException if the move is not legal
+     * @throws IllegalStateException if the session has been closed
+     */
+    synchronized String playMove(CharSequence notation) {
+        checkOpen();
+        if (!game.playMove(notation)) {
+            throw new IllegalArgumentException("Illegal move: " + notation);
+        }
+        return game.getState().name();
+    }
+
+    /**
+     * Takes back the last move
+     *
+     * @return the state of the game after the move is taken back
+     * @throws IllegalStateException if there is no move to take back or the session has been closed
+     */
+    synchronized String undoMove() {
+        checkOpen();
+        game.unmakeMove();
+        return game.getState().name();
+    }
+
+    /**
+     * Gets the legal moves of the player to move in coordinate notation, separated by spaces
+     */
+    synchronized String getLegalMoves() {
+        checkOpen();
+        final MoveList moves = game.getLegalMoves();
+        final StringBuilder builder = new StringBuilder(moves.size() * 6);
+        for (int i = 0; i < moves.size(); i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(MoveNotation.toCoordinate(moves.get(i)));
+        }
+        return builder.toString();
+    }
+
+    synchronized String getFen() {
+        checkOpen();
+        return Fen.toFen(game.getBoard());
+    }
+
+    synchronized String getState() {
+        checkOpen();
+        return game.getState().name();
+    }
+
+    /**
+     * Closes the session, so connections still holding it can't play on
+     */
+    synchronized void close() {
+        closed = true;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Game " + id + " is closed");
+        }
+    }
+}
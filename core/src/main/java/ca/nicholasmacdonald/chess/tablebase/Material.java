@@ -0,0 +1,243 @@
+package ca.nicholasmacdonald.chess.tablebase;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+/**
+ * The pieces on the board in an endgame, written like KQKR: white's king and pieces, then black's king and pieces.
+ * <p>
+ * Each piece has a slot, with white's king first, then white's other pieces from strongest to weakest, then black's
+ * king and pieces in the same order. A position of the endgame is indexed by the square of the piece in each slot and
+ * the player to move.
+ *
+ * @author Nicholas MacDonald
+ */
+public final class Material {
+    public static final int MAX_PIECES = 4;
+
+    private static final PieceType[] TYPES = PieceType.values();
+
+    // Indexed by piece type
+    private static final String LETTERS = "PNBRQK";
+    private static final int[] VALUES = {1, 3, 3, 5, 9, 0};
+
+    // Each player's count of every type but the king is packed into a key, 3 bits a type
+    private static final int COUNT_BITS = 3;
+    private static final int COUNT_MASK = (1 << COUNT_BITS) - 1;
+
+    private final int whiteKey;
+    private final int blackKey;
+    private final PieceType[] types;
+    private final Player[] players;
+    private final int[] occurrences;
+    private final String name;
+
+    private Material(int whiteKey, int blackKey) {
+        this.whiteKey = whiteKey;
+        this.blackKey = blackKey;
+
+        final int size = 2 + getCount(whiteKey) + getCount(blackKey);
+        this.types = new PieceType[size];
+        this.players = new Player[size];
+        this.occurrences = new int[size];
+
+        final StringBuilder builder = new StringBuilder(size);
+        int slot = 0;
+        for (Player player : new Player[]{Player.WHITE, Player.BLACK}) {
+            final int key = player == Player.WHITE ? whiteKey : blackKey;
+
+            for (int type = PieceType.KING.ordinal(); type >= 0; type--) {
+                final int count = type == PieceType.KING.ordinal() ? 1 : getCount(key, TYPES[type]);
+                for (int i = 0; i < count; i++) {
+                    types[slot] = TYPES[type];
+                    players[slot] = player;
+                    occurrences[slot] = i;
+                    builder.append(LETTERS.charAt(type));
+                    slot++;
+                }
+            }
+        }
+        this.name = builder.toString();
+    }
+
+    /**
+     * Reads an endgame from its name, such as KQK or KRKP
+     *
+     * @param name the name
+     * @return the endgame
+     * @throws IllegalArgumentException if the name is not an endgame of up to {@link #MAX_PIECES} pieces
+     */
+    public static Material parse(String name) {
+        final int blackKing = name.indexOf('K', 1);
+        if (name.isEmpty() || name.charAt(0) != 'K' || blackKing < 0) {
+            throw new IllegalArgumentException("Invalid endgame, expected a king for each player: " + name);
+        }
+        if (name.length() > MAX_PIECES) {
+            throw new IllegalArgumentException("Invalid endgame, more than " + MAX_PIECES + " pieces: " + name);
+        }
+
+        return new Material(parseKey(name, 1, blackKing), parseKey(name, blackKing + 1, name.length()));
+    }
+
+    private static int parseKey(String name, int start, int end) {
+        int key = 0;
+        for (int i = start; i < end; i++) {
+            final int type = LETTERS.indexOf(name.charAt(i));
+            if (type < 0 || type == PieceType.KING.ordinal()) {
+                throw new IllegalArgumentException("Invalid endgame, unknown piece '" + name.charAt(i) + "': " + name);
+            }
+            key += 1 << (type * COUNT_BITS);
+        }
+        return key;
+    }
+
+    /**
+     * Gets the key of the pieces a player has on a board, other than the king
+     *
+     * @param board the board
+     * @param player the player
+     * @return the key
+     */
+    public static int getKey(Board board, Player player) {
+        int key = 0;
+        for (int type = 0; type < PieceType.KING.ordinal(); type++) {
+            key |= Long.bitCount(board.getOccupancy(TYPES[type], player)) << (type * COUNT_BITS);
+        }
+        return key;
+    }
+
+    /**
+     * Gets the endgame with the pieces of one type and player taken away or swapped for another type, as after a
+     * capture or a promotion
+     *
+     * @param player the player whose pieces change
+     * @param removed the type of piece taken away
+     * @param added the type of piece added, or null for none
+     * @return the new endgame
+     */
+    public Material change(Player player, PieceType removed, PieceType added) {
+        int key = player == Player.WHITE ? whiteKey : blackKey;
+        key -= 1 << (removed.ordinal() * COUNT_BITS);
+        if (added != null) {
+            key += 1 << (added.ordinal() * COUNT_BITS);
+        }
+        return player == Player.WHITE ? new Material(key, blackKey) : new Material(whiteKey, key);
+    }
+
+    /**
+     * Gets the same endgame with the colours swapped
+     *
+     * @return the flipped endgame
+     */
+    public Material flip() {
+        return new Material(blackKey, whiteKey);
+    }
+
+    /**
+     * Gets the way this endgame is stored, with the stronger player as white. A table for either one answers for
+     * both, with the board flipped.
+     *
+     * @return this endgame or its flipped version
+     */
+    public Material getCanonical() {
+        final int whiteValue = getValue(whiteKey);
+        final int blackValue = getValue(blackKey);
+        return whiteValue > blackValue || (whiteValue == blackValue && whiteKey >= blackKey) ? this : flip();
+    }
+
+    public int getWhiteKey() {
+        return whiteKey;
+    }
+
+    public int getBlackKey() {
+        return blackKey;
+    }
+
+    /**
+     * Gets the number of pieces, including the kings
+     *
+     * @return the number of pieces
+     */
+    public int size() {
+        return types.length;
+    }
+
+    public PieceType getType(int slot) {
+        return types[slot];
+    }
+
+    public Player getPlayer(int slot) {
+        return players[slot];
+    }
+
+    /**
+     * Gets how many slots before this one hold the same type of piece for the same player
+     *
+     * @param slot the slot
+     * @return the number of earlier slots with the same piece
+     */
+    public int getOccurrence(int slot) {
+        return occurrences[slot];
+    }
+
+    /**
+     * Gets the number of positions in the endgame's index, including impossible ones
+     *
+     * @return the number of positions
+     */
+    public int getPositionCount() {
+        return 2 << (6 * types.length);
+    }
+
+    /**
+     * Gets the bit of the index that holds the player to move, which is set when black is to move
+     *
+     * @return the shift of the player bit
+     */
+    public int getPlayerShift() {
+        return 6 * types.length;
+    }
+
+    private static int getCount(int key) {
+        int count = 0;
+        for (; key != 0; key >>>= COUNT_BITS) {
+            count += key & COUNT_MASK;
+        }
+        return count;
+    }
+
+    private static int getCount(int key, PieceType type) {
+        return (key >>> (type.ordinal() * COUNT_BITS)) & COUNT_MASK;
+    }
+
+    private static int getValue(int key) {
+        int value = 0;
+        for (int type = 0; type < PieceType.KING.ordinal(); type++) {
+            value += VALUES[type] * getCount(key, TYPES[type]);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Material)) {
+            return false;
+        }
+        Material material = (Material) o;
+        return whiteKey == material.whiteKey && blackKey == material.blackKey;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * whiteKey + blackKey;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,276 @@
+package ca.nicholasmacdonald.chess.tablebase;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.game.GameState;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Answers endgames of up to {@link Material#MAX_PIECES} pieces from tables built by {@link TablebaseGenerator}.
+ * <p>
+ * Each endgame has two files named after it. The .wdl file holds the result for the player to move in 2 bits a
+ * position, and the .dtm file holds the number of plies until mate for won and lost positions in as few bits as the
+ * longest mate needs. Both start with a 16 byte header: a magic number, the version, the number of positions and the
+ * number of bits a position. The files are memory-mapped, so a probe reads a couple of bytes and doesn't allocate.
+ * <p>
+ * A probe is packed into an int, read with {@link #getResult(int)} and {@link #getDistance(int)}.
+ *
+ * @author Nicholas MacDonald
+ */
+public final class Tablebase implements Closeable {
+    public static final int NOT_FOUND = -1;
+
+    // Results for the player to move
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+    public static final int LOSS = 2;
+    public static final int STALEMATE = 3;
+
+    static final int WDL_MAGIC = 0x54425744;
+    static final int DTM_MAGIC = 0x5442444D;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int WDL_BITS = 2;
+    static final String WDL_EXTENSION = ".wdl";
+    static final String DTM_EXTENSION = ".dtm";
+
+    private final Path directory;
+    private volatile Table[] tables = new Table[0];
+
+    /**
+     * Opens every table in a directory
+     *
+     * @param directory the directory, which is created if it doesn't exist
+     * @throws IOException if a table can't be read
+     * @throws IllegalArgumentException if a table is not valid
+     */
+    public Tablebase(Path directory) throws IOException {
+        this.directory = Files.createDirectories(directory);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + WDL_EXTENSION)) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                add(Material.parse(name.substring(0, name.length() - WDL_EXTENSION.length())));
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns true if there is a table for an endgame, with either player as white
+     *
+     * @param material the endgame
+     * @return true if the endgame can be probed
+     */
+    public boolean contains(Material material) {
+        return find(material.getWhiteKey(), material.getBlackKey()) != null || find(material.getBlackKey(), material.getWhiteKey()) != null;
+    }
+
+    /**
+     * Looks up the position on a board
+     *
+     * @param board the board
+     * @return the result and distance to mate packed into an int, or {@link #NOT_FOUND} if there is no table for the
+     * pieces on the board
+     */
+    public int probe(Board board) {
+        if (Long.bitCount(board.getOccupancy()) > Material.MAX_PIECES) {
+            return NOT_FOUND;
+        }
+
+        final int whiteKey = Material.getKey(board, Player.WHITE);
+        final int blackKey = Material.getKey(board, Player.BLACK);
+
+        // Bare kings can't mate or be stalemated
+        if (whiteKey == 0 && blackKey == 0) {
+            return DRAW;
+        }
+
+        Table table = find(whiteKey, blackKey);
+        boolean flipped = false;
+        if (table == null) {
+            table = find(blackKey, whiteKey);
+            flipped = true;
+        }
+        return table == null ? NOT_FOUND : table.get(getIndex(table.material, board, flipped));
+    }
+
+    /**
+     * Gets the state of the game for the position on a board, in the same way as a game would
+     *
+     * @param board the board
+     * @return the state, or null if there is no table for the pieces on the board
+     */
+    public GameState getState(Board board) {
+        final int probe = probe(board);
+        if (probe == NOT_FOUND) {
+            return null;
+        }
+
+        final Player player = board.getSideToMove();
+        if (getResult(probe) == STALEMATE) {
+            return GameState.STALEMATE;
+        } else if (getResult(probe) == LOSS && getDistance(probe) == 0) {
+            return player == Player.BLACK ? GameState.BLACK_CHECKMATE : GameState.WHITE_CHECKMATE;
+        } else if (board.isSquareAttacked(Long.numberOfTrailingZeros(board.getOccupancy(PieceType.KING, player)), player.getOpponent())) {
+            return player == Player.BLACK ? GameState.BLACK_CHECK : GameState.WHITE_CHECK;
+        }
+        return GameState.PLAYING;
+    }
+
+    /**
+     * Gets the result for the player to move from a probe
+     *
+     * @param probe the probe
+     * @return {@link #WIN}, {@link #LOSS}, {@link #DRAW} or {@link #STALEMATE}
+     */
+    public static int getResult(int probe) {
+        return probe & ((1 << WDL_BITS) - 1);
+    }
+
+    /**
+     * Gets the number of plies until mate from a probe, if the best moves are played
+     *
+     * @param probe the probe
+     * @return the number of plies, which is 0 when the player to move is already mated or the game is not won
+     */
+    public static int getDistance(int probe) {
+        return probe >>> WDL_BITS;
+    }
+
+    /**
+     * Gets the index of the position on a board in an endgame's table
+     *
+     * @param material the endgame
+     * @param board the board, which must have the endgame's pieces
+     * @param flipped true to swap the colours and mirror the board, for a table stored the other way around
+     * @return the index
+     */
+    static int getIndex(Material material, Board board, boolean flipped) {
+        int index = 0;
+        for (int slot = 0; slot < material.size(); slot++) {
+            final Player player = flipped ? material.getPlayer(slot).getOpponent() : material.getPlayer(slot);
+
+            long pieces = board.getOccupancy(material.getType(slot), player);
+            for (int i = 0; i < material.getOccurrence(slot); i++) {
+                pieces &= pieces - 1;
+            }
+
+            final int square = Long.numberOfTrailingZeros(pieces);
+            index |= (flipped ? mirror(square) : square) << (6 * slot);
+        }
+
+        final Player sideToMove = flipped ? board.getSideToMove().getOpponent() : board.getSideToMove();
+        return sideToMove == Player.BLACK ? index | 1 << material.getPlayerShift() : index;
+    }
+
+    /**
+     * Mirrors a square from one side of the board to the other, swapping the ranks
+     */
+    static int mirror(int square) {
+        return square ^ (Board.NUMBER_OF_SQUARES - Board.NUMBER_OF_SQUARES_IN_LINE);
+    }
+
+    /**
+     * Opens the table of an endgame from the directory, once its files have been written
+     *
+     * @param material the endgame
+     * @throws IOException if the files can't be read
+     * @throws IllegalArgumentException if the files are not valid
+     */
+    synchronized void add(Material material) throws IOException {
+        final Table table = new Table(material,
+                map(directory.resolve(material + WDL_EXTENSION), WDL_MAGIC, material),
+                map(directory.resolve(material + DTM_EXTENSION), DTM_MAGIC, material));
+
+        final Table[] added = Arrays.copyOf(tables, tables.length + 1);
+        added[tables.length] = table;
+        tables = added;
+    }
+
+    private static MappedByteBuffer map(Path path, int magic, Material material) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != magic || buffer.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("Invalid table, wrong header: " + path);
+            }
+            if (buffer.getInt(8) != material.getPositionCount()) {
+                throw new IllegalArgumentException("Invalid table, wrong number of positions: " + path);
+            }
+
+            final long bits = (long) buffer.getInt(8) * buffer.getInt(12);
+            if (buffer.limit() < HEADER_SIZE + (bits + 7) / 8 + 1) {
+                throw new IllegalArgumentException("Invalid table, file is too short: " + path);
+            }
+            return buffer;
+        }
+    }
+
+    private Table find(int whiteKey, int blackKey) {
+        for (Table table : tables) {
+            if (table.material.getWhiteKey() == whiteKey && table.material.getBlackKey() == blackKey) {
+                return table;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes the tables. The memory of a mapped file is given back once nothing refers to the tablebase.
+     */
+    @Override
+    public void close() {
+        tables = new Table[0];
+    }
+
+    /**
+     * The mapped files of one endgame
+     */
+    private static final class Table {
+        private final Material material;
+        private final MappedByteBuffer wdl;
+        private final MappedByteBuffer dtm;
+        private final int dtmBits;
+
+        Table(Material material, MappedByteBuffer wdl, MappedByteBuffer dtm) {
+            this.material = material;
+            this.wdl = wdl;
+            this.dtm = dtm;
+            this.dtmBits = dtm.getInt(12);
+        }
+
+        int get(int index) {
+            final int result = read(wdl, index, WDL_BITS);
+            return result == WIN || result == LOSS ? read(dtm, index, dtmBits) << WDL_BITS | result : result;
+        }
+    }
+
+    /**
+     * Reads a value of up to 8 bits from a bit-packed file, where the value at an index starts at bit
+     * index * bits and the bits of each byte are used from the lowest up
+     */
+    static int read(MappedByteBuffer buffer, int index, int bits) {
+        final long bit = (long) index * bits;
+        final int offset = HEADER_SIZE + (int) (bit >>> 3);
+        final int word = (buffer.get(offset) & 0xFF) | (buffer.get(offset + 1) & 0xFF) << 8;
+        return (word >>> (bit & 7)) & ((1 << bits) - 1);
+    }
+}
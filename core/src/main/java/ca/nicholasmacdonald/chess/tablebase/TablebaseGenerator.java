@@ -0,0 +1,535 @@
+package ca.nicholasmacdonald.chess.tablebase;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.move.LegalMoveGenerator;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.move.MoveGenerator;
+import ca.nicholasmacdonald.chess.move.MoveList;
+import ca.nicholasmacdonald.chess.piece.Attacks;
+import ca.nicholasmacdonald.chess.piece.Piece;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Builds endgame tables by retrograde analysis, working backwards from every mate.
+ * <p>
+ * First every position of the endgame is set up on a board and its legal moves are worked out by the move generator.
+ * Captures and promotions lead to smaller endgames, which are generated first and looked up. Then, one ply at a time,
+ * the positions lost in N plies mark every position that can move into them as won in N + 1, and the positions won
+ * in N count down the moves left to the positions that can move into them. A position whose every move leads to a
+ * win for the other player is lost. Whatever is left at the end is a draw. Both passes are shared out between threads.
+ * <pre>
+ * usage: TablebaseGenerator DIRECTORY (ENDGAME... | --all) [--threads N]
+ * </pre>
+ *
+ * @author Nicholas MacDonald
+ */
+public class TablebaseGenerator {
+    // States of a position during generation
+    private static final int UNKNOWN = 0;
+    private static final int IMPOSSIBLE = 1;
+    private static final int WON = 2;
+    private static final int LOST = 3;
+    private static final int DRAWN = 4;
+    private static final int STALEMATED = 5;
+
+    // A position's state and distance share one char, so other threads never see one without the other
+    private static final int STATE_SHIFT = 8;
+    private static final int DISTANCE_MASK = (1 << STATE_SHIFT) - 1;
+
+    // Added to the count of moves left when a capture or promotion draws, so the position can never be lost
+    private static final int DRAWING_EXIT = 1 << 16;
+
+    private static final int MAX_DISTANCE = DISTANCE_MASK;
+
+    private final Tablebase tablebase;
+    private final int threads;
+
+    /**
+     * Creates a generator that writes tables to the directory of a tablebase
+     *
+     * @param tablebase the tablebase, which tables are added to as they are generated
+     * @param threads the number of threads to generate each table on
+     */
+    public TablebaseGenerator(Tablebase tablebase, int threads) {
+        this.tablebase = tablebase;
+        this.threads = threads;
+    }
+
+    /**
+     * Generates the table for an endgame, and first the tables of every endgame it can turn into. Tables that are
+     * already in the tablebase are not generated again.
+     *
+     * @param material the endgame
+     * @throws IOException if a table can't be written
+     */
+    public void generate(Material material) throws IOException {
+        material = material.getCanonical();
+        if (material.size() <= 2 || tablebase.contains(material)) {
+            return;
+        }
+
+        // Captures and promotions lead to other endgames
+        for (int slot = 0; slot < material.size(); slot++) {
+            final PieceType type = material.getType(slot);
+            if (type != PieceType.KING) {
+                generate(material.change(material.getPlayer(slot), type, null));
+            }
+            if (type == PieceType.PAWN) {
+                generate(material.change(material.getPlayer(slot), type, PieceType.QUEEN));
+            }
+        }
+
+        final long start = System.nanoTime();
+        final Generation generation = new Generation(material);
+        generation.run();
+        System.err.println(material + ": " + generation.getSummary() + " in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+    }
+
+    /**
+     * Gets every endgame of 3 or 4 pieces, with the stronger player as white
+     *
+     * @return the endgames
+     */
+    public static List<Material> getAllEndgames() {
+        final String pieces = "QRBNP";
+        final List<Material> endgames = new ArrayList<>();
+
+        for (int i = 0; i < pieces.length(); i++) {
+            endgames.add(Material.parse("K" + pieces.charAt(i) + "K"));
+        }
+        for (int i = 0; i < pieces.length(); i++) {
+            for (int j = i; j < pieces.length(); j++) {
+                endgames.add(Material.parse("K" + pieces.charAt(i) + pieces.charAt(j) + "K"));
+            }
+        }
+        for (int i = 0; i < pieces.length(); i++) {
+            for (int j = i; j < pieces.length(); j++) {
+                endgames.add(Material.parse("K" + pieces.charAt(i) + "K" + pieces.charAt(j)));
+            }
+        }
+        return endgames;
+    }
+
+    /**
+     * The work of generating one table
+     */
+    private class Generation {
+        private final Material material;
+        private final int size;
+        private final int playerShift;
+        private final char[] positions;
+        private final AtomicIntegerArray movesLeft;
+        private final AtomicInteger lastDistance = new AtomicInteger();
+
+        Generation(Material material) {
+            this.material = material;
+            this.size = material.getPositionCount();
+            this.playerShift = material.getPlayerShift();
+            this.positions = new char[size];
+            this.movesLeft = new AtomicIntegerArray(size);
+        }
+
+        void run() throws IOException {
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                forEachRange(executor, this::initialize);
+
+                // Unless it wins sooner, a lost position can't be settled before its longest capture or promotion
+                for (int distance = 0; distance <= lastDistance.get(); distance++) {
+                    final int current = distance;
+                    forEachRange(executor, (from, to) -> propagate(from, to, current));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            write();
+            tablebase.add(material);
+        }
+
+        /**
+         * Runs a task over the whole index, split into one range for each thread, and waits for it to finish
+         */
+        private void forEachRange(ExecutorService executor, RangeTask task) {
+            final List<Callable<Void>> tasks = new ArrayList<>();
+            final int step = (size + threads - 1) / threads;
+            for (int from = 0; from < size; from += step) {
+                final int start = from;
+                final int end = Math.min(size, from + step);
+                tasks.add(() -> {
+                    task.run(start, end);
+                    return null;
+                });
+            }
+
+            try {
+                for (Future<Void> future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while generating " + material, e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to generate " + material, e.getCause());
+            }
+        }
+
+        /**
+         * Sets up every position in a range on a board and works out what it can do
+         */
+        private void initialize(int from, int to) {
+            final Board board = new Board();
+            board.clear();
+            final MoveGenerator generator = new LegalMoveGenerator();
+            final MoveList moves = new MoveList();
+            final int[] squares = new int[material.size()];
+
+            for (int index = from; index < to; index++) {
+                if (!decode(index, squares)) {
+                    positions[index] = IMPOSSIBLE << STATE_SHIFT;
+                    continue;
+                }
+
+                final Player player = getPlayer(index);
+                for (int slot = 0; slot < squares.length; slot++) {
+                    board.setPiece(squares[slot], Piece.of(material.getType(slot), material.getPlayer(slot)));
+                }
+                board.setSideToMove(player);
+
+                initialize(index, board, generator, moves, squares, player);
+
+                for (int square : squares) {
+                    board.setPiece(square, null);
+                }
+            }
+        }
+
+        private void initialize(int index, Board board, MoveGenerator generator, MoveList moves, int[] squares, Player player) {
+            // The player who just moved can't have left their king in check
+            if (isInCheck(board, squares, player.getOpponent())) {
+                positions[index] = IMPOSSIBLE << STATE_SHIFT;
+                return;
+            }
+
+            generator.generateMoves(board, player, moves);
+            if (moves.isEmpty()) {
+                positions[index] = (char) ((isInCheck(board, squares, player) ? LOST : STALEMATED) << STATE_SHIFT);
+                return;
+            }
+
+            int inside = 0;
+            int fastestWin = Integer.MAX_VALUE;
+            int slowestLoss = 0;
+            boolean drawingExit = false;
+
+            for (int i = 0; i < moves.size(); i++) {
+                final int move = moves.get(i);
+                if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+                    inside++;
+                    continue;
+                }
+
+                final int probe = probeAfter(board, move, player);
+                final int result = Tablebase.getResult(probe);
+                if (result == Tablebase.LOSS) {
+                    fastestWin = Math.min(fastestWin, Tablebase.getDistance(probe) + 1);
+                } else if (result == Tablebase.WIN) {
+                    slowestLoss = Math.max(slowestLoss, Tablebase.getDistance(probe) + 1);
+                } else {
+                    drawingExit = true;
+                }
+            }
+
+            if (fastestWin != Integer.MAX_VALUE) {
+                // May still be beaten by a faster win inside this endgame
+                settle(index, WON, fastestWin);
+            } else if (inside == 0) {
+                if (drawingExit) {
+                    positions[index] = DRAWN << STATE_SHIFT;
+                } else {
+                    settle(index, LOST, slowestLoss);
+                }
+            } else {
+                // Until the position is settled its distance holds the slowest loss out of the endgame
+                movesLeft.set(index, drawingExit ? inside + DRAWING_EXIT : inside);
+                positions[index] = (char) (UNKNOWN << STATE_SHIFT | slowestLoss);
+            }
+        }
+
+        /**
+         * Looks up the result for the other player after a capture or promotion, in the endgame it leads to
+         */
+        private int probeAfter(Board board, int move, Player player) {
+            final int from = Move.getFrom(move);
+            final int to = Move.getTo(move);
+            final Piece piece = board.getPiece(from);
+            final Piece captured = board.getPiece(to);
+
+            board.setPiece(to, Move.isPromotion(move) ? Piece.of(Move.getPromotionType(move), player) : piece);
+            board.setPiece(from, null);
+            board.setSideToMove(player.getOpponent());
+
+            final int probe = tablebase.probe(board);
+
+            board.setPiece(from, piece);
+            board.setPiece(to, captured);
+            board.setSideToMove(player);
+
+            if (probe == Tablebase.NOT_FOUND) {
+                throw new IllegalStateException("No table for the endgame after " + Move.toString(move) + " in " + material);
+            }
+            return probe;
+        }
+
+        /**
+         * Settles every position in a range that is won or lost in a number of plies, by working out what that means
+         * for the positions that could have moved into it
+         */
+        private void propagate(int from, int to, int distance) {
+            final int[] squares = new int[material.size()];
+
+            for (int index = from; index < to; index++) {
+                final int state = positions[index] >>> STATE_SHIFT;
+                if ((state != WON && state != LOST) || (positions[index] & DISTANCE_MASK) != distance) {
+                    continue;
+                }
+
+                decode(index, squares);
+                final Player mover = getPlayer(index).getOpponent();
+                final long occupancy = getOccupancy(squares);
+
+                for (int slot = 0; slot < squares.length; slot++) {
+                    if (material.getPlayer(slot) != mover) {
+                        continue;
+                    }
+
+                    final int square = squares[slot];
+                    for (long sources = getUnmoves(material.getType(slot), mover, square, occupancy); sources != 0; sources &= sources - 1) {
+                        final int source = Long.numberOfTrailingZeros(sources);
+                        final int previous = (index ^ (square << (6 * slot)) ^ (source << (6 * slot))) ^ (1 << playerShift);
+
+                        final int previousPosition = positions[previous];
+                        final int previousState = previousPosition >>> STATE_SHIFT;
+
+                        if (state == LOST) {
+                            // Moving into a lost position wins
+                            if (previousState == UNKNOWN || (previousState == WON && (previousPosition & DISTANCE_MASK) > distance + 1)) {
+                                settle(previous, WON, distance + 1);
+                            }
+                        } else if (previousState == UNKNOWN && movesLeft.decrementAndGet(previous) == 0) {
+                            // Every move leads to a win for the other player
+                            settle(previous, LOST, Math.max(distance + 1, previousPosition & DISTANCE_MASK));
+                        }
+                    }
+                }
+            }
+        }
+
+        private void settle(int index, int state, int distance) {
+            if (distance > MAX_DISTANCE) {
+                throw new IllegalStateException("Mate in " + distance + " plies is too long to store in " + material);
+            }
+
+            positions[index] = (char) (state << STATE_SHIFT | distance);
+            lastDistance.accumulateAndGet(distance, Math::max);
+        }
+
+        /**
+         * Gets the squares a piece on a square could have come from with a move that doesn't capture or promote
+         */
+        private long getUnmoves(PieceType type, Player player, int square, long occupancy) {
+            switch (type) {
+                case PAWN: {
+                    // Pawns move towards the other player's side, so look back the other way
+                    final int step = player == Player.BLACK ? -Board.NUMBER_OF_SQUARES_IN_LINE : Board.NUMBER_OF_SQUARES_IN_LINE;
+                    final int startY = player == Player.BLACK ? 1 : Board.NUMBER_OF_SQUARES_IN_LINE - 2;
+                    final int single = square + step;
+                    if (Board.getY(square) == startY || (occupancy & 1L << single) != 0) {
+                        return 0;
+                    }
+
+                    long sources = 1L << single;
+                    final int twice = single + step;
+                    if (Board.getY(twice) == startY && (occupancy & 1L << twice) == 0) {
+                        sources |= 1L << twice;
+                    }
+                    return sources;
+                }
+                case KNIGHT:
+                    return Attacks.knightAttacks(square) & ~occupancy;
+                case BISHOP:
+                    return Attacks.bishopAttacks(square, occupancy) & ~occupancy;
+                case ROOK:
+                    return Attacks.rookAttacks(square, occupancy) & ~occupancy;
+                case QUEEN:
+                    return Attacks.queenAttacks(square, occupancy) & ~occupancy;
+                default:
+                    return Attacks.kingAttacks(square) & ~occupancy;
+            }
+        }
+
+        /**
+         * Reads the squares of a position from its index
+         *
+         * @return false if the position is impossible, with two pieces on one square or a pawn on an end row
+         */
+        private boolean decode(int index, int[] squares) {
+            long occupancy = 0;
+            boolean possible = true;
+            for (int slot = 0; slot < squares.length; slot++) {
+                final int square = (index >>> (6 * slot)) & 63;
+                squares[slot] = square;
+
+                possible &= (occupancy & 1L << square) == 0;
+                occupancy |= 1L << square;
+
+                if (material.getType(slot) == PieceType.PAWN) {
+                    final int y = Board.getY(square);
+                    possible &= y != 0 && y != Board.NUMBER_OF_SQUARES_IN_LINE - 1;
+                }
+            }
+            return possible;
+        }
+
+        private Player getPlayer(int index) {
+            return (index >>> playerShift & 1) == 0 ? Player.WHITE : Player.BLACK;
+        }
+
+        private long getOccupancy(int[] squares) {
+            long occupancy = 0;
+            for (int square : squares) {
+                occupancy |= 1L << square;
+            }
+            return occupancy;
+        }
+
+        private boolean isInCheck(Board board, int[] squares, Player player) {
+            for (int slot = 0; slot < squares.length; slot++) {
+                if (material.getType(slot) == PieceType.KING && material.getPlayer(slot) == player) {
+                    return board.isSquareAttacked(squares[slot], player.getOpponent());
+                }
+            }
+            throw new IllegalStateException("No king for " + player + " in " + material);
+        }
+
+        String getSummary() {
+            int wins = 0;
+            int losses = 0;
+            int draws = 0;
+            for (char position : positions) {
+                final int state = position >>> STATE_SHIFT;
+                if (state == WON) {
+                    wins++;
+                } else if (state == LOST) {
+                    losses++;
+                } else if (state != IMPOSSIBLE) {
+                    draws++;
+                }
+            }
+            return (wins + losses + draws) + " positions, " + wins + " won, " + losses + " lost, " + draws +
+                    " drawn, longest mate " + lastDistance.get() + " plies";
+        }
+
+        /**
+         * Writes the results and distances as bit-packed files. Impossible and unsettled positions are draws.
+         */
+        private void write() throws IOException {
+            final int distanceBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(lastDistance.get()));
+            final byte[] results = new byte[(int) (((long) size * Tablebase.WDL_BITS + 7) / 8) + 1];
+            final byte[] packedDistances = new byte[(int) (((long) size * distanceBits + 7) / 8) + 1];
+
+            for (int index = 0; index < size; index++) {
+                final int state = positions[index] >>> STATE_SHIFT;
+                if (state == WON || state == LOST) {
+                    pack(results, index, Tablebase.WDL_BITS, state == WON ? Tablebase.WIN : Tablebase.LOSS);
+                    pack(packedDistances, index, distanceBits, positions[index] & DISTANCE_MASK);
+                } else if (state == STALEMATED) {
+                    pack(results, index, Tablebase.WDL_BITS, Tablebase.STALEMATE);
+                }
+            }
+
+            final Path directory = tablebase.getDirectory();
+            write(directory.resolve(material + Tablebase.WDL_EXTENSION), Tablebase.WDL_MAGIC, Tablebase.WDL_BITS, results);
+            write(directory.resolve(material + Tablebase.DTM_EXTENSION), Tablebase.DTM_MAGIC, distanceBits, packedDistances);
+        }
+
+        private void write(Path path, int magic, int bits, byte[] values) throws IOException {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                final ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_SIZE);
+                header.putInt(magic).putInt(Tablebase.VERSION).putInt(size).putInt(bits).flip();
+
+                final ByteBuffer body = ByteBuffer.wrap(values);
+                while (header.hasRemaining() || body.hasRemaining()) {
+                    channel.write(new ByteBuffer[]{header, body});
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs a value into a byte array in the layout {@link Tablebase} reads
+     */
+    private static void pack(byte[] values, int index, int bits, int value) {
+        final long bit = (long) index * bits;
+        final int offset = (int) (bit >>> 3);
+        final int word = value << (bit & 7);
+        values[offset] |= (byte) word;
+        values[offset + 1] |= (byte) (word >>> 8);
+    }
+
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = null;
+        final List<Material> endgames = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--all":
+                    endgames.addAll(getAllEndgames());
+                    break;
+                default:
+                    if (directory == null) {
+                        directory = Paths.get(args[i]);
+                    } else {
+                        endgames.add(Material.parse(args[i]));
+                    }
+                    break;
+            }
+        }
+
+        if (directory == null || endgames.isEmpty()) {
+            throw new IllegalArgumentException("usage: TablebaseGenerator DIRECTORY (ENDGAME... | --all) [--threads N]");
+        }
+
+        try (Tablebase tablebase = new Tablebase(directory)) {
+            final TablebaseGenerator generator = new TablebaseGenerator(tablebase, threads);
+            for (Material endgame : endgames) {
+                generator.generate(endgame);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ca.nicholasmacdonald.chess.tournament;
+
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.move.MoveList;
+import ca.nicholasmacdonald.chess.search.Evaluation;
+import ca.nicholasmacdonald.chess.search.Search;
+
+import java.util.Random;
+
+/**
+ * Plays the move that leaves the best looking position, without looking at the reply. A move that mates is always
+ * played, and one that stalemates scores as a draw rather than by the material left on the board.
+ *
+ * @author Nicholas MacDonald
+ */
+public class GreedyStrategy implements Strategy {
+    private final MoveList moves = new MoveList();
+
+    @Override
+    public int selectMove(GameManager game, Random random) {
+        // Copy the moves, since making a move invalidates the game's list
+        final MoveList legalMoves = game.getLegalMoves();
+        moves.clear();
+        for (int i = 0; i < legalMoves.size(); i++) {
+            moves.add(legalMoves.get(i));
+        }
+
+        int bestMove = moves.get(0);
+        int bestScore = Integer.MIN_VALUE;
+        int ties = 0;
+
+        for (int i = 0; i < moves.size(); i++) {
+            final int move = moves.get(i);
+            game.makeMove(move);
+            final int score = getScore(game);
+            game.unmakeMove();
+
+            // Pick evenly between equally good moves
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = move;
+                ties = 1;
+            } else if (score == bestScore && random.nextInt(++ties) == 0) {
+                bestMove = move;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Scores the position after a move for the player who made it
+     */
+    private static int getScore(GameManager game) {
+        if (game.getLegalMoves().isEmpty()) {
+            return game.isInCheck(game.getCurrentPlayer()) ? Search.MATE : 0;
+        }
+        return -Evaluation.evaluate(game.getBoard());
+    }
+}
@@ -0,0 +1,19 @@
+package ca.nicholasmacdonald.chess.tournament;
+
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.move.MoveList;
+
+import java.util.Random;
+
+/**
+ * Plays any legal move
+ *
+ * @author Nicholas MacDonald
+ */
+public class RandomStrategy implements Strategy {
+    @Override
+    public int selectMove(GameManager game, Random random) {
+        final MoveList moves = game.getLegalMoves();
+        return moves.get(random.nextInt(moves.size()));
+    }
+}
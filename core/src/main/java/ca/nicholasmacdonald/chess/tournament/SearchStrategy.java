@@ -0,0 +1,58 @@
+package ca.nicholasmacdonald.chess.tournament;
+
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.game.TranspositionTable;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.search.Search;
+
+import java.util.Random;
+
+/**
+ * Plays the best move found by a search limited by time, depth or both
+ *
+ * @author Nicholas MacDonald
+ */
+public class SearchStrategy implements Strategy {
+    public static final long UNLIMITED_TIME = 24L * 60 * 60 * 1000;
+    public static final int UNLIMITED_DEPTH = Search.MAX_PLY - 1;
+
+    // Small enough to clear quickly between games
+    private static final long TABLE_SIZE_IN_BYTES = 2L * 1024 * 1024;
+
+    private final long timeBudgetMillis;
+    private final int maxDepth;
+    private final TranspositionTable table;
+
+    private GameManager game;
+    private Search search;
+
+    /**
+     * Creates a search strategy
+     *
+     * @param timeBudgetMillis the time to search each move for
+     * @param maxDepth the deepest to search each move
+     * @throws IllegalArgumentException if the time or depth is not positive
+     */
+    public SearchStrategy(long timeBudgetMillis, int maxDepth) {
+        if (timeBudgetMillis <= 0 || maxDepth <= 0) {
+            throw new IllegalArgumentException("Search needs a positive time and depth: " + timeBudgetMillis + "ms, depth " + maxDepth);
+        }
+
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.maxDepth = maxDepth;
+        this.table = new TranspositionTable(TABLE_SIZE_IN_BYTES);
+    }
+
+    @Override
+    public int selectMove(GameManager game, Random random) {
+        // A search belongs to one game, so start afresh when given a new one
+        if (game != this.game) {
+            this.game = game;
+            this.search = new Search(game, table);
+            table.clear();
+        }
+
+        final int move = search.search(timeBudgetMillis, maxDepth).getBestMove();
+        return move != Move.NONE ? move : game.getLegalMoves().get(0);
+    }
+}
@@ -0,0 +1,53 @@
+package ca.nicholasmacdonald.chess.tournament;
+
+import ca.nicholasmacdonald.chess.game.GameManager;
+
+import java.util.Random;
+
+/**
+ * A way of choosing moves, used to play games with no one at the board
+ *
+ * @author Nicholas MacDonald
+ */
+public interface Strategy {
+    /**
+     * Chooses a move for the current player. The game is left as it was.
+     *
+     * @param game the game, which must not be over
+     * @param random the random numbers to use for any choice between equal moves
+     * @return one of the game's legal moves
+     */
+    int selectMove(GameManager game, Random random);
+
+    /**
+     * Creates a strategy from its name: {@code random}, {@code greedy}, {@code search:MILLIS} to search for a fixed
+     * time or {@code depth:N} to search to a fixed depth
+     *
+     * @param name the name of the strategy
+     * @return a new strategy, which may only be used by one thread at a time
+     * @throws IllegalArgumentException if the name is not a known strategy
+     */
+    static Strategy create(String name) {
+        final int colon = name.indexOf(':');
+        final String type = colon < 0 ? name : name.substring(0, colon);
+        final String argument = colon < 0 ? null : name.substring(colon + 1);
+
+        try {
+            switch (type) {
+                case "random":
+                    return new RandomStrategy();
+                case "greedy":
+                    return new GreedyStrategy();
+                case "search":
+                    return new SearchStrategy(Long.parseLong(argument), SearchStrategy.UNLIMITED_DEPTH);
+                case "depth":
+                    return new SearchStrategy(SearchStrategy.UNLIMITED_TIME, Integer.parseInt(argument));
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid strategy: " + name, e);
+        }
+        throw new IllegalArgumentException("Unknown strategy: " + name);
+    }
+}
@@ -0,0 +1,301 @@
+package ca.nicholasmacdonald.chess.tournament;
+
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.game.GameState;
+import ca.nicholasmacdonald.chess.move.MoveList;
+import ca.nicholasmacdonald.chess.notation.MoveNotation;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays games between two strategies with no user interface, writing each game out as PGN as soon as it finishes.
+ * <p>
+ * Every game is played on its own {@link GameManager}, and the strategies swap colours each game. The first few
+ * moves of each game are random so no two games are the same, and games that go on too long are stopped and recorded
+ * as unfinished. The random moves of game N only depend on the seed and N, so a run can be repeated exactly as long
+ * as the strategies don't depend on time.
+ * <pre>
+ * usage: Tournament [--games M] [--first STRATEGY] [--second STRATEGY] [--threads N] [--opening-moves N]
+ *                   [--max-moves N] [--seed N] [--output FILE]
+ * </pre>
+ * Strategies are named as in {@link Strategy#create(String)}. The totals and throughput are printed to standard
+ * error at the end.
+ *
+ * @author Nicholas MacDonald
+ */
+public class Tournament {
+    private static final String EVENT = "Self-play";
+
+    private final String firstStrategy;
+    private final String secondStrategy;
+    private final int openingMoves;
+    private final int maxMoves;
+    private final long seed;
+
+    // Totals, from the first strategy's side
+    private final LongAdder games = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder firstWins = new LongAdder();
+    private final LongAdder secondWins = new LongAdder();
+    private final LongAdder draws = new LongAdder();
+    private final LongAdder unfinished = new LongAdder();
+
+    /**
+     * Creates a tournament
+     *
+     * @param firstStrategy the name of the strategy that plays white in even numbered games
+     * @param secondStrategy the name of the strategy that plays white in odd numbered games
+     * @param openingMoves the number of random half moves at the start of each game
+     * @param maxMoves the number of half moves after which a game is stopped
+     * @param seed the seed for the random moves
+     * @throws IllegalArgumentException if a strategy is unknown
+     */
+    public Tournament(String firstStrategy, String secondStrategy, int openingMoves, int maxMoves, long seed) {
+        // Fail early on a bad name rather than on every thread
+        Strategy.create(firstStrategy);
+        Strategy.create(secondStrategy);
+
+        this.firstStrategy = firstStrategy;
+        this.secondStrategy = secondStrategy;
+        this.openingMoves = openingMoves;
+        this.maxMoves = maxMoves;
+        this.seed = seed;
+    }
+
+    /**
+     * Plays the games on a pool of threads, each of which takes the next game to play until there are none left
+     *
+     * @param numberOfGames the number of games to play
+     * @param threads the number of threads
+     * @param out where to write the games, which is only written to by one thread at a time
+     * @throws IllegalStateException if a game fails or the calling thread is interrupted
+     */
+    public void play(int numberOfGames, int threads, Writer out) {
+        final AtomicInteger nextGame = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            final List<Future<?>> workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    // Strategies keep state between moves, so each thread has its own
+                    final Strategy first = Strategy.create(firstStrategy);
+                    final Strategy second = Strategy.create(secondStrategy);
+
+                    int game;
+                    while ((game = nextGame.getAndIncrement()) < numberOfGames) {
+                        final String pgn = playGame(game, first, second);
+                        synchronized (out) {
+                            out.write(pgn);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+            out.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while playing games", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A game failed", e.getCause());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Plays one game
+     *
+     * @param number the number of the game, which decides the colours and the opening
+     * @param first the first strategy
+     * @param second the second strategy
+     * @return the game as PGN
+     */
+    public String playGame(int number, Strategy first, Strategy second) {
+        final boolean firstIsWhite = number % 2 == 0;
+        final Strategy white = firstIsWhite ? first : second;
+        final Strategy black = firstIsWhite ? second : first;
+        final Random random = new Random(seed + number * 0x9E3779B97F4A7C15L);
+
+        final GameManager game = new GameManager();
+        final StringBuilder moveText = new StringBuilder(1024);
+        final RandomStrategy opening = new RandomStrategy();
+
+        int ply = 0;
+        while (!game.getState().isGameOver() && ply < maxMoves) {
+            final Strategy strategy = ply < openingMoves ? opening : game.getCurrentPlayer() == Player.WHITE ? white : black;
+            final MoveList legalMoves = game.getLegalMoves();
+            final int move = strategy.selectMove(game, random);
+            final String notation = MoveNotation.toAlgebraic(move, game.getBoard(), legalMoves);
+
+            if (!game.playMove(move)) {
+                throw new IllegalStateException("Strategy played an illegal move: " + notation);
+            }
+
+            if (ply % 2 == 0) {
+                moveText.append(ply / 2 + 1).append(". ");
+            }
+            moveText.append(notation).append(getCheckMark(game.getState())).append(' ');
+            ply++;
+        }
+
+        final String result = getResult(game.getState());
+        moveText.append(result);
+        record(game.getState(), firstIsWhite, ply);
+
+        return "[Event \"" + EVENT + "\"]\n" +
+                "[Round \"" + (number + 1) + "\"]\n" +
+                "[White \"" + (firstIsWhite ? firstStrategy : secondStrategy) + "\"]\n" +
+                "[Black \"" + (firstIsWhite ? secondStrategy : firstStrategy) + "\"]\n" +
+                "[Result \"" + result + "\"]\n" +
+                (game.getState().isGameOver() ? "" : "[Termination \"unterminated\"]\n") +
+                "[PlyCount \"" + ply + "\"]\n" +
+                "\n" +
+                moveText + "\n\n";
+    }
+
+    private void record(GameState state, boolean firstIsWhite, int plies) {
+        games.increment();
+        moves.add(plies);
+
+        if (state == GameState.BLACK_CHECKMATE) {
+            (firstIsWhite ? firstWins : secondWins).increment();
+        } else if (state == GameState.WHITE_CHECKMATE) {
+            (firstIsWhite ? secondWins : firstWins).increment();
+        } else if (state == GameState.STALEMATE) {
+            draws.increment();
+        } else {
+            unfinished.increment();
+        }
+    }
+
+    private static String getCheckMark(GameState state) {
+        switch (state) {
+            case BLACK_CHECK:
+            case WHITE_CHECK:
+                return "+";
+            case BLACK_CHECKMATE:
+            case WHITE_CHECKMATE:
+                return "#";
+            default:
+                return "";
+        }
+    }
+
+    private static String getResult(GameState state) {
+        switch (state) {
+            case BLACK_CHECKMATE:
+                return "1-0";
+            case WHITE_CHECKMATE:
+                return "0-1";
+            case STALEMATE:
+                return "1/2-1/2";
+            default:
+                return "*";
+        }
+    }
+
+    public long getGames() {
+        return games.sum();
+    }
+
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * Gets the totals as one line of JSON
+     *
+     * @param nanos how long the games took, for the throughput
+     * @return the totals
+     */
+    public String toJson(long nanos) {
+        final double seconds = nanos / 1e9;
+        return "{\"first\":\"" + firstStrategy + "\"" +
+                ",\"second\":\"" + secondStrategy + "\"" +
+                ",\"games\":" + games.sum() +
+                ",\"firstWins\":" + firstWins.sum() +
+                ",\"secondWins\":" + secondWins.sum() +
+                ",\"draws\":" + draws.sum() +
+                ",\"unfinished\":" + unfinished.sum() +
+                ",\"moves\":" + moves.sum() +
+                ",\"millis\":" + nanos / 1_000_000 +
+                ",\"gamesPerSecond\":" + (seconds == 0 ? 0 : (long) (games.sum() / seconds)) +
+                ",\"movesPerSecond\":" + (seconds == 0 ? 0 : (long) (moves.sum() / seconds)) +
+                "}";
+    }
+
+    public static void main(String[] args) throws IOException {
+        int numberOfGames = 100;
+        String first = "greedy";
+        String second = "random";
+        int threads = Runtime.getRuntime().availableProcessors();
+        int openingMoves = 4;
+        int maxMoves = 400;
+        long seed = 0;
+        String output = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    numberOfGames = Integer.parseInt(args[++i]);
+                    break;
+                case "--first":
+                    first = args[++i];
+                    break;
+                case "--second":
+                    second = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--opening-moves":
+                    openingMoves = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-moves":
+                    maxMoves = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--output":
+                    output = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+
+        Tournament tournament = new Tournament(first, second, openingMoves, maxMoves, seed);
+
+        try (Writer out = output == null ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+            final long start = System.nanoTime();
+            tournament.play(numberOfGames, threads, out);
+            System.err.println(tournament.toJson(System.nanoTime() - start));
+        }
+    }
+}
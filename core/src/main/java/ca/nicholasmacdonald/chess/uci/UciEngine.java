@@ -0,0 +1,485 @@
+package ca.nicholasmacdonald.chess.uci;
+
+import ca.nicholasmacdonald.chess.board.Board;
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.game.TranspositionTable;
+import ca.nicholasmacdonald.chess.move.LegalMoveGenerator;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.notation.Fen;
+import ca.nicholasmacdonald.chess.notation.MoveNotation;
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+import ca.nicholasmacdonald.chess.search.ParallelSearch;
+import ca.nicholasmacdonald.chess.search.Search;
+import ca.nicholasmacdonald.chess.search.SearchResult;
+import ca.nicholasmacdonald.chess.tablebase.Tablebase;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Plays through the Universal Chess Interface, so the game can be used from chess GUIs and tournament managers.
+ * <p>
+ * Commands are read on the calling thread and searches run on a thread of their own, so {@code isready} and
+ * {@code stop} are answered straight away while a search is running. The game is kept between commands, and a
+ * {@code position} command that continues the last one only plays the moves that are new, taking back any that
+ * differ, instead of setting the game up again from the start.
+ * <p>
+ * The game has no castling or en passant and always promotes to a queen, so moves that need those rules are
+ * reported as illegal and the moves after them are ignored.
+ * <pre>
+ * usage: UciEngine
+ * </pre>
+ *
+ * @author Nicholas MacDonald
+ */
+public class UciEngine {
+    public static final String NAME = "Chess";
+    public static final String AUTHOR = "Nicholas MacDonald";
+
+    private static final int DEFAULT_HASH_MB = 64;
+    private static final int MAX_HASH_MB = 4096;
+    private static final int MAX_THREADS = 256;
+
+    // Searches with no time limit still need a deadline that doesn't overflow
+    private static final long NO_TIME_LIMIT_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Time management: a share of the clock per move, leaving some for the moves still to come and for lag
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    private static final long MOVE_OVERHEAD_MILLIS = 20;
+
+    private static final byte[] START_SNAPSHOT = new Board().snapshot();
+
+    private final BufferedReader in;
+    private final Writer out;
+
+    private final GameManager game;
+    private String basePosition = "startpos";
+    private final List<String> playedMoves = new ArrayList<>();
+
+    // False after a position that couldn't be set up, which go answers without searching
+    private boolean positionValid = true;
+
+    private int hashMegabytes = DEFAULT_HASH_MB;
+    private int threads = 1;
+    private Tablebase tablebase;
+    private ParallelSearch search;
+
+    private final ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "uci-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> running;
+    private volatile CountDownLatch infinite;
+
+    /**
+     * Creates an engine
+     *
+     * @param in where commands are read from
+     * @param out where responses are written, which is flushed after every one
+     */
+    public UciEngine(BufferedReader in, Writer out) {
+        this.in = in;
+        this.out = out;
+        this.game = new GameManager(new Board(), new LegalMoveGenerator(), null);
+    }
+
+    /**
+     * Reads and runs commands until {@code quit} or the end of the input
+     *
+     * @throws IOException if the commands can't be read or the responses can't be written
+     */
+    public void run() throws IOException {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (!execute(line)) {
+                    break;
+                }
+            }
+        } finally {
+            stopSearch();
+            searchThread.shutdownNow();
+            if (search != null) {
+                search.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Runs one command
+     *
+     * @param line the command
+     * @return false if the engine should quit
+     * @throws IOException if a response can't be written
+     */
+    public boolean execute(String line) throws IOException {
+        final String[] words = line.trim().split("\\s+");
+
+        switch (words[0]) {
+            case "uci":
+                send("id name " + NAME + "\n" +
+                        "id author " + AUTHOR + "\n" +
+                        "option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB + "\n" +
+                        "option name Threads type spin default 1 min 1 max " + MAX_THREADS + "\n" +
+                        "option name TablebasePath type string default <empty>\n" +
+                        "uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "setoption":
+                stopSearch();
+                setOption(words);
+                break;
+            case "ucinewgame":
+                stopSearch();
+                if (search != null) {
+                    search.getTable().clear();
+                }
+                setPosition("startpos", words, words.length);
+                break;
+            case "position":
+                stopSearch();
+                position(words);
+                break;
+            case "go":
+                stopSearch();
+                go(words);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "quit":
+                return false;
+            default:
+                // Unknown commands, and debug and register, are ignored. There is no ponderhit, as go ponder is refused
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * position (startpos | fen FEN) [moves MOVE...]
+     */
+    private void position(String[] words) throws IOException {
+        int movesIndex = indexOf(words, "moves");
+        if (movesIndex < 0) {
+            movesIndex = words.length;
+        }
+
+        if (words.length > 1 && words[1].equals("startpos")) {
+            setPosition("startpos", words, movesIndex);
+        } else if (words.length > 2 && words[1].equals("fen")) {
+            setPosition(String.join(" ", Arrays.copyOfRange(words, 2, movesIndex)), words, movesIndex);
+        } else {
+            send("info string expected startpos or fen");
+        }
+    }
+
+    /**
+     * Brings the game to a position and the moves after it. When the position is the same as last time, only the
+     * moves that changed are taken back and played.
+     *
+     * @param position "startpos" or a FEN
+     * @param words the words of the command
+     * @param movesIndex the index of the word "moves", or the length of the command if there are none
+     */
+    private void setPosition(String position, String[] words, int movesIndex) throws IOException {
+        int kept = 0;
+        if (position.equals(basePosition)) {
+            final int newMoves = Math.max(words.length - movesIndex - 1, 0);
+            while (kept < playedMoves.size() && kept < newMoves && playedMoves.get(kept).equals(words[movesIndex + 1 + kept])) {
+                kept++;
+            }
+            for (int i = playedMoves.size(); i > kept; i--) {
+                game.unmakeMove();
+                playedMoves.remove(i - 1);
+            }
+        } else {
+            // Whatever was played before is forgotten, so a position that fails doesn't leave the last one to search
+            basePosition = null;
+            playedMoves.clear();
+            try {
+                game.restore(position.equals("startpos") ? START_SNAPSHOT : parsePosition(position));
+            } catch (IllegalArgumentException e) {
+                positionValid = false;
+                send("info string " + e.getMessage());
+                return;
+            }
+            basePosition = position;
+        }
+        positionValid = true;
+
+        for (int i = movesIndex + 1 + kept; i < words.length; i++) {
+            if (!game.playMove(MoveNotation.parseCoordinate(words[i], game.getLegalMoves()))) {
+                send("info string illegal move " + words[i]);
+                return;
+            }
+            playedMoves.add(words[i]);
+        }
+    }
+
+    /**
+     * Reads a FEN, checking that the player who just moved didn't leave their king in check, which the search can't
+     * play from
+     *
+     * @return the position as a snapshot
+     * @throws IllegalArgumentException if the FEN is not a valid position
+     */
+    private static byte[] parsePosition(String fen) {
+        final Board board = Fen.parse(fen);
+        final Player player = board.getSideToMove();
+        if (board.isSquareAttacked(Long.numberOfTrailingZeros(board.getOccupancy(PieceType.KING, player.getOpponent())), player)) {
+            throw new IllegalArgumentException("Invalid position, the player not to move is in check: " + fen);
+        }
+        return board.snapshot();
+    }
+
+    /**
+     * go [wtime N] [btime N] [winc N] [binc N] [movestogo N] [movetime N] [depth N] [infinite]
+     * <p>
+     * The engine doesn't offer the Ponder option, so {@code go ponder} is refused rather than searched until a
+     * {@code ponderhit} that would never set a deadline.
+     */
+    private void go(String[] words) throws IOException {
+        if (indexOf(words, "ponder") >= 0) {
+            send("info string ponder is not supported");
+            return;
+        }
+        if (!positionValid) {
+            send("bestmove 0000");
+            return;
+        }
+
+        final Player player = game.getCurrentPlayer();
+        long time = -1;
+        long increment = 0;
+        int movesToGo = DEFAULT_MOVES_TO_GO;
+        long moveTime = -1;
+        int depth = Search.MAX_PLY - 1;
+        boolean untilStopped = false;
+
+        for (int i = 1; i < words.length; i++) {
+            switch (words[i]) {
+                case "wtime":
+                case "btime":
+                    if (words[i].charAt(0) == (player == Player.WHITE ? 'w' : 'b')) {
+                        time = parseLong(words, ++i);
+                    } else {
+                        i++;
+                    }
+                    break;
+                case "winc":
+                case "binc":
+                    if (words[i].charAt(0) == (player == Player.WHITE ? 'w' : 'b')) {
+                        increment = parseLong(words, ++i);
+                    } else {
+                        i++;
+                    }
+                    break;
+                case "movestogo":
+                    movesToGo = Math.max((int) parseLong(words, ++i), 1);
+                    break;
+                case "movetime":
+                    moveTime = parseLong(words, ++i);
+                    break;
+                case "depth":
+                    depth = (int) Math.min(Math.max(parseLong(words, ++i), 1), Search.MAX_PLY - 1);
+                    break;
+                case "infinite":
+                    untilStopped = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        final long budget;
+        if (moveTime >= 0) {
+            budget = moveTime;
+        } else if (time >= 0) {
+            budget = Math.max(Math.min(time / movesToGo + increment / 2, time - MOVE_OVERHEAD_MILLIS), 1);
+        } else {
+            budget = NO_TIME_LIMIT_MILLIS;
+        }
+
+        final ParallelSearch search = getSearch();
+        final int maxDepth = depth;
+        final CountDownLatch latch = untilStopped ? new CountDownLatch(1) : null;
+        infinite = latch;
+
+        running = searchThread.submit(() -> {
+            final SearchResult result = search.search(budget, maxDepth);
+
+            // A search until stopped doesn't answer before it is told to, even if it has nothing left to search
+            if (latch != null) {
+                latch.await();
+            }
+
+            send("info depth " + result.getDepth() +
+                    " score " + getScore(result.getScore()) +
+                    " nodes " + result.getNodes() +
+                    " nps " + result.getNodesPerSecond() +
+                    " time " + result.getNanos() / 1_000_000 +
+                    (result.getBestMove() == Move.NONE ? "" : " pv " + MoveNotation.toCoordinate(result.getBestMove())) + "\n" +
+                    "bestmove " + (result.getBestMove() == Move.NONE ? "0000" : MoveNotation.toCoordinate(result.getBestMove())));
+            return null;
+        });
+    }
+
+    /**
+     * Writes a score the UCI way, in centipawns or in moves to mate
+     */
+    private static String getScore(int score) {
+        if (score >= Search.MATE_THRESHOLD) {
+            return "mate " + (Search.MATE - score + 1) / 2;
+        } else if (score <= -Search.MATE_THRESHOLD) {
+            return "mate " + -(Search.MATE + score) / 2;
+        }
+        return "cp " + score;
+    }
+
+    /**
+     * setoption name NAME [value VALUE]
+     */
+    private void setOption(String[] words) throws IOException {
+        final int valueIndex = indexOf(words, "value");
+        final String name = words.length > 2 ? words[2] : "";
+        final String value = valueIndex < 0 ? "" : String.join(" ", Arrays.copyOfRange(words, valueIndex + 1, words.length));
+
+        try {
+            switch (name.toLowerCase()) {
+                case "hash":
+                    hashMegabytes = Math.min(Math.max(Integer.parseInt(value), 1), MAX_HASH_MB);
+                    resetSearch();
+                    break;
+                case "threads":
+                    threads = Math.min(Math.max(Integer.parseInt(value), 1), MAX_THREADS);
+                    resetSearch();
+                    break;
+                case "tablebasepath":
+                    if (tablebase != null) {
+                        tablebase.close();
+                    }
+                    tablebase = value.isEmpty() || value.equals("<empty>") ? null : new Tablebase(Paths.get(value));
+                    if (search != null) {
+                        search.setTablebase(tablebase);
+                    }
+                    break;
+                default:
+                    send("info string unknown option " + name);
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            send("info string invalid value for " + name + ": " + value);
+        } catch (IOException | IllegalArgumentException e) {
+            tablebase = null;
+            send("info string could not open tablebase: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the search, creating it with the current options the first time it is needed
+     */
+    private ParallelSearch getSearch() {
+        if (search == null) {
+            search = new ParallelSearch(game, threads, new TranspositionTable(hashMegabytes * 1024L * 1024));
+            search.setTablebase(tablebase);
+        }
+        return search;
+    }
+
+    private void resetSearch() {
+        if (search != null) {
+            search.shutdown();
+            search = null;
+        }
+    }
+
+    /**
+     * Stops the running search and waits for it to answer with its best move, so the game isn't changed under it.
+     * A search that hasn't got going yet would miss a single stop, so it is asked again until it answers.
+     */
+    private void stopSearch() throws IOException {
+        final CountDownLatch latch = infinite;
+        if (latch != null) {
+            latch.countDown();
+        }
+        if (running == null) {
+            return;
+        }
+
+        try {
+            while (true) {
+                search.stop();
+                try {
+                    running.get(1, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException e) {
+                    // Not stopped yet
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the search", e);
+        } catch (ExecutionException e) {
+            send("info string search failed: " + e.getCause());
+        } finally {
+            running = null;
+        }
+    }
+
+    private void send(String message) throws IOException {
+        synchronized (out) {
+            out.write(message);
+            out.write('\n');
+            out.flush();
+        }
+    }
+
+    private static int indexOf(String[] words, String word) {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].equals(word)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long parseLong(String[] words, int index) {
+        try {
+            return index < words.length ? Long.parseLong(words[index]) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // Straight to the file descriptors, so nothing is flushed that the engine doesn't flush itself
+        final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(FileDescriptor.in), StandardCharsets.US_ASCII));
+        final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out), StandardCharsets.US_ASCII));
+
+        new UciEngine(in, out).run();
+    }
+}
@@ -0,0 +1,340 @@
+package ca.nicholasmacdonald.chess.perft;
+
+import ca.nicholasmacdonald.chess.game.GameManager;
+import ca.nicholasmacdonald.chess.move.FilteringMoveGenerator;
+import ca.nicholasmacdonald.chess.move.LegalMoveGenerator;
+import ca.nicholasmacdonald.chess.move.Move;
+import ca.nicholasmacdonald.chess.move.MoveGenerator;
+import ca.nicholasmacdonald.chess.move.MoveList;
+import ca.nicholasmacdonald.chess.notation.Fen;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the leaf nodes of the move tree to a fixed depth, which both checks the move generator against known
+ * counts and measures how fast it is.
+ * <p>
+ * With no position given, every position in {@code perft-positions.epd} is run to each depth it has an expected count
+ * for, up to the maximum depth. Each result is printed as one line of JSON, and the run fails if any count is wrong.
+ * <pre>
+ * usage: Perft [--depth N] [--fen FEN] [--divide] [--generator legal|filtering] [--output FILE]
+ * </pre>
+ *
+ * @author Nicholas MacDonald
+ */
+public class Perft {
+    private static final String POSITIONS_RESOURCE = "/perft-positions.epd";
+    private static final int MAX_DEPTH = 32;
+    private static final String USAGE = "usage: Perft [--depth N] [--fen FEN] [--divide] [--generator legal|filtering] [--output FILE]";
+
+    private final MoveGenerator moveGenerator;
+    private final MoveList[] moveLists;
+
+    public Perft(MoveGenerator moveGenerator) {
+        this.moveGenerator = moveGenerator;
+        this.moveLists = new MoveList[MAX_DEPTH];
+        for (int i = 0; i < MAX_DEPTH; i++) {
+            this.moveLists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Counts the positions reachable in exactly the given number of moves
+     *
+     * @param game the game, which is left as it was
+     * @param depth the number of moves, below {@link #MAX_DEPTH}
+     * @return the number of positions
+     */
+    public long perft(GameManager game, int depth) {
+        if (depth == 0) {
+            return 1;
+        }
+
+        final MoveList moves = moveLists[depth];
+        moveGenerator.generateMoves(game.getBoard(), game.getCurrentPlayer(), moves);
+
+        // The generator only returns legal moves, so the last level can be counted without making them
+        if (depth == 1) {
+            return moves.size();
+        }
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeMove(moves.get(i));
+            nodes += perft(game, depth - 1);
+            game.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Prints the node count below each move from the current position, for tracking down a wrong total
+     *
+     * @param game the game, which is left as it was
+     * @param depth the number of moves, including the divided move
+     * @param out where to print the counts
+     * @return the total number of positions
+     */
+    public long divide(GameManager game, int depth, PrintStream out) {
+        final MoveList moves = new MoveList();
+        moveGenerator.generateMoves(game.getBoard(), game.getCurrentPlayer(), moves);
+
+        long total = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            game.makeMove(moves.get(i));
+            final long nodes = perft(game, depth - 1);
+            game.unmakeMove();
+
+            out.println(Move.toString(moves.get(i)) + ": " + nodes);
+            total += nodes;
+        }
+
+        out.println("Total: " + total);
+        return total;
+    }
+
+    /**
+     * Runs perft on one position and measures it
+     *
+     * @param name a name for the position
+     * @param fen the position
+     * @param depth the depth, from 1 to one below {@link #MAX_DEPTH}
+     * @param expected the expected count, or -1 if it is not known
+     * @return the result
+     * @throws IllegalArgumentException if the depth is out of range
+     */
+    public Result run(String name, String fen, int depth, long expected) {
+        checkDepth(depth);
+        GameManager game = new GameManager(Fen.parse(fen), moveGenerator, null);
+
+        final long allocatedBefore = getAllocatedBytes();
+        final long start = System.nanoTime();
+        final long nodes = perft(game, depth);
+        final long nanos = System.nanoTime() - start;
+        final long allocated = getAllocatedBytes() - allocatedBefore;
+
+        return new Result(name, fen, depth, nodes, expected, nanos, allocated);
+    }
+
+    /**
+     * Checks a depth fits the move lists, which are indexed by the depth left to search
+     *
+     * @throws IllegalArgumentException if the depth is out of range
+     */
+    private static void checkDepth(int depth) {
+        if (depth < 1 || depth >= MAX_DEPTH) {
+            throw new IllegalArgumentException("The depth must be from 1 to " + (MAX_DEPTH - 1) + ", not " + depth);
+        }
+    }
+
+    /**
+     * Gets the bytes allocated by this thread so far, or -1 if the JVM can't measure it
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    /**
+     * The outcome of one perft run
+     */
+    public static class Result {
+        private final String name;
+        private final String fen;
+        private final int depth;
+        private final long nodes;
+        private final long expected;
+        private final long nanos;
+        private final long allocatedBytes;
+
+        Result(String name, String fen, int depth, long nodes, long expected, long nanos, long allocatedBytes) {
+            this.name = name;
+            this.fen = fen;
+            this.depth = depth;
+            this.nodes = nodes;
+            this.expected = expected;
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        public boolean isCorrect() {
+            return expected < 0 || nodes == expected;
+        }
+
+        public long getNodesPerSecond() {
+            return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos;
+        }
+
+        public String toJson() {
+            final double seconds = nanos / 1e9;
+            return "{\"position\":\"" + name + "\"" +
+                    ",\"fen\":\"" + fen + "\"" +
+                    ",\"depth\":" + depth +
+                    ",\"nodes\":" + nodes +
+                    ",\"expected\":" + expected +
+                    ",\"correct\":" + isCorrect() +
+                    ",\"millis\":" + nanos / 1_000_000 +
+                    ",\"nodesPerSecond\":" + getNodesPerSecond() +
+                    ",\"allocatedBytes\":" + allocatedBytes +
+                    ",\"allocatedBytesPerSecond\":" + (allocatedBytes < 0 || seconds == 0 ? -1 : (long) (allocatedBytes / seconds)) +
+                    "}";
+        }
+    }
+
+    /**
+     * A position from the suite along with its expected counts, indexed by depth
+     */
+    private static class Position {
+        private final String name;
+        private final String fen;
+        private final long[] expected;
+
+        Position(String name, String fen, long[] expected) {
+            this.name = name;
+            this.fen = fen;
+            this.expected = expected;
+        }
+    }
+
+    /**
+     * Reads the suite - each line is a FEN followed by ';name NAME' and ';D1 COUNT', ';D2 COUNT' and so on
+     */
+    private static List<Position> loadPositions() throws IOException {
+        List<Position> positions = new ArrayList<>();
+
+        try (InputStream in = Perft.class.getResourceAsStream(POSITIONS_RESOURCE);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                final String[] fields = line.split(";");
+                String name = "position-" + (positions.size() + 1);
+                long[] expected = new long[MAX_DEPTH];
+                for (int i = 1; i < fields.length; i++) {
+                    final String[] parts = fields[i].trim().split("\\s+");
+                    if (parts[0].equals("name")) {
+                        name = parts[1];
+                    } else if (parts[0].startsWith("D")) {
+                        expected[Integer.parseInt(parts[0].substring(1))] = Long.parseLong(parts[1]);
+                    }
+                }
+                positions.add(new Position(name, fields[0].trim(), expected));
+            }
+        }
+
+        return positions;
+    }
+
+    /**
+     * Prints the usage and makes the exception to stop with. Perft runs inside Maven, so it can't call System.exit.
+     */
+    private static IllegalArgumentException usageError(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        return new IllegalArgumentException(message);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int depth = 5;
+        String fen = null;
+        boolean divide = false;
+        MoveGenerator moveGenerator = new LegalMoveGenerator();
+        String output = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth":
+                    try {
+                        depth = Integer.parseInt(args[++i]);
+                        checkDepth(depth);
+                    } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+                        throw usageError("Invalid depth: " + (i < args.length ? args[i] : "none given") +
+                                ", it must be from 1 to " + (MAX_DEPTH - 1));
+                    }
+                    break;
+                case "--fen":
+                    fen = args[++i];
+                    break;
+                case "--divide":
+                    divide = true;
+                    break;
+                case "--generator":
+                    final String generator = ++i < args.length ? args[i] : "none given";
+                    if (generator.equals("legal")) {
+                        moveGenerator = new LegalMoveGenerator();
+                    } else if (generator.equals("filtering")) {
+                        moveGenerator = new FilteringMoveGenerator();
+                    } else {
+                        throw usageError("Unknown generator: " + generator);
+                    }
+                    break;
+                case "--output":
+                    output = args[++i];
+                    break;
+                default:
+                    throw usageError("Unknown argument: " + args[i]);
+            }
+        }
+
+        final Perft perft = new Perft(moveGenerator);
+
+        // The output file is closed when the run ends, since under Maven the JVM carries on afterwards
+        if (output == null) {
+            run(perft, fen, divide, depth, System.out);
+        } else {
+            try (PrintStream out = new PrintStream(output, StandardCharsets.UTF_8.name())) {
+                run(perft, fen, divide, depth, out);
+            }
+        }
+    }
+
+    /**
+     * Runs one position, or the whole suite if there is no FEN
+     *
+     * @throws IllegalStateException if any count in the suite is wrong
+     */
+    private static void run(Perft perft, String fen, boolean divide, int depth, PrintStream out) throws IOException {
+        if (fen != null) {
+            if (divide) {
+                perft.divide(new GameManager(Fen.parse(fen), perft.moveGenerator, null), depth, out);
+            } else {
+                out.println(perft.run("fen", fen, depth, -1).toJson());
+            }
+            out.flush();
+            return;
+        }
+
+        int failures = 0;
+        for (Position position : loadPositions()) {
+            for (int d = 1; d <= depth && position.expected[d] != 0; d++) {
+                Result result = perft.run(position.name, position.fen, d, position.expected[d]);
+                out.println(result.toJson());
+                out.flush();
+
+                if (!result.isCorrect()) {
+                    failures++;
+                }
+            }
+        }
+
+        if (failures > 0) {
+            throw new IllegalStateException(failures + " perft counts did not match");
+        }
+    }
+}
@@ -3,30 +3,27 @@ package ca.nicholasmacdonald.chess;
 import ca.nicholasmacdonald.chess.board.Board;
 import ca.nicholasmacdonald.chess.board.Square;
 import ca.nicholasmacdonald.chess.game.GameManager;
-import ca.nicholasmacdonald.chess.piece.Bishop;
-import ca.nicholasmacdonald.chess.piece.King;
-import ca.nicholasmacdonald.chess.piece.Knight;
-import ca.nicholasmacdonald.chess.piece.Pawn;
 import ca.nicholasmacdonald.chess.piece.Piece;
+import ca.nicholasmacdonald.chess.piece.PieceType;
 import ca.nicholasmacdonald.chess.piece.Player;
-import ca.nicholasmacdonald.chess.piece.Queen;
-import ca.nicholasmacdonald.chess.piece.Rook;
 import processing.core.PApplet;
+import processing.core.PGraphics;
 import processing.core.PImage;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.lang.management.ManagementFactory;
 
 /**
- * Handles user input and rendering using the processing library
+ * Handles user input and rendering using the processing library.
+ * <p>
+ * Nothing is drawn while the game is idle. A frame is only drawn when the mouse moves or a button is pressed, and the
+ * tiles, text area and resting pieces are drawn once into an off-screen layer that is only redrawn when the game
+ * changes. Each frame copies that layer and draws the highlights and the dragged piece on top.
  *
  * @author Nicholas MacDonald
  */
 public class Chess extends PApplet {
     private static final int BOARD_SIZE = 800;
     private static final int SQUARE_SIZE = BOARD_SIZE / Board.NUMBER_OF_SQUARES_IN_LINE;
-    private static final int PIECE_SIZE = 100;
 
     private static final int HIGHLIGHT_STROKE_WEIGHT = 5;
     private static final int POSSIBLE_MOVE_ELLIPSE_SIZE = 25;
@@ -38,7 +35,6 @@ public class Chess extends PApplet {
     private static final int TEXT_AREA_TEXT_SIZE = 24;
     private static final int TEXT_AREA_TEXT_X = 10;
 
-    private static final int RESTART_BUTTON_SIZE = 70;
     private static final int RESTART_BUTTON_X = 750;
     private static final int RESTART_BUTTON_Y = TEXT_AREA_HEIGHT / 2;
 
@@ -57,8 +53,8 @@ public class Chess extends PApplet {
     // The amount of milliseconds that the failed selection highlight should stay
     private static final int FAILED_SELECTION_MILLIS = 120;
 
-    private final Map<Class<? extends Piece>, PImage> blackImageMap;
-    private final Map<Class<? extends Piece>, PImage> whiteImageMap;
+    // Indexed by piece id
+    private final PImage[] pieceImages;
 
     private GameManager gameManager;
 
@@ -67,10 +63,14 @@ public class Chess extends PApplet {
     private long failedSelectionTimestamp;
 
     private PImage restartButtonImage;
+    private boolean firstFrameDrawn;
+
+    // Everything that only changes when the game does
+    private PGraphics staticLayer;
+    private boolean staticLayerValid;
 
     public Chess() {
-        this.blackImageMap = new HashMap<>();
-        this.whiteImageMap = new HashMap<>();
+        this.pieceImages = new PImage[Piece.NUMBER_OF_PIECES];
         this.gameManager = new GameManager();
     }
 
@@ -85,18 +85,58 @@ public class Chess extends PApplet {
         rectMode(CENTER);
         ellipseMode(CENTER);
         imageMode(CENTER);
+
+        staticLayer = createGraphics(width, height);
+        staticLayerValid = false;
+
+        // Only draw when something happens
+        noLoop();
     }
 
     @Override
     public void draw() {
-        background(WHITE);
+        // Clear an expired failed selection before drawing, so the last looping frame is drawn without it
+        if (failedSelectionSquare != null && millis() - failedSelectionTimestamp >= FAILED_SELECTION_MILLIS) {
+            failedSelectionSquare = null;
+        }
+
         checkForPieceDrop();
-        drawTiles();
-        drawTextArea();
-        drawButtons();
-        drawHighlights();
-        drawPieces();
+        updateStaticLayer();
+
+        imageMode(CORNER);
+        image(staticLayer, 0, 0);
+        imageMode(CENTER);
+
+        final Square squareAtMouse = getSquareAtMouse();
+        drawHighlights(squareAtMouse);
+        drawSelectedPiece();
         drawPossibleMoves();
+
+        // Keep drawing until the failed selection highlight has gone
+        if (failedSelectionSquare == null) {
+            noLoop();
+        }
+
+        if (!firstFrameDrawn) {
+            firstFrameDrawn = true;
+            final long millis = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+            println("First frame drawn " + millis + "ms after start");
+        }
+    }
+
+    @Override
+    public void mouseMoved() {
+        redraw();
+    }
+
+    @Override
+    public void mouseDragged() {
+        redraw();
+    }
+
+    @Override
+    public void mouseReleased() {
+        redraw();
     }
 
     @Override
@@ -110,32 +150,32 @@ public class Chess extends PApplet {
         Square clickedSquare = getSquareAtMouse();
         if (clickedSquare != null && clickedSquare.getPiece() != null) {
             boolean selected = gameManager.handleSelect(clickedSquare);
+            invalidateStaticLayer();
 
             if (!selected) {
                 failedSelectionSquare = clickedSquare;
                 failedSelectionTimestamp = millis();
+                loop();
             }
         }
+        redraw();
     }
 
+    /**
+     * Loads every image from the sprite atlas, which is already scaled and inverted so it only needs decoding once
+     */
     private void loadChessImages() {
-        for (Class<? extends Piece> pieceClass : Arrays.asList(Bishop.class, King.class, Knight.class, Pawn.class, Queen.class, Rook.class)) {
-            final String typeName = pieceClass.getSimpleName().toLowerCase();
-            final String blackPath = "images/pieces/black-" + typeName + ".png";
-            final String whitePath = "images/pieces/white-" + typeName + ".png";
-            final PImage blackImage = loadImage(blackPath);
-            final PImage whiteImage = loadImage(whitePath);
-            blackImage.resize(PIECE_SIZE, PIECE_SIZE);
-            whiteImage.resize(PIECE_SIZE, PIECE_SIZE);
-            blackImageMap.put(pieceClass, blackImage);
-            whiteImageMap.put(pieceClass, whiteImage);
-        }
+        final PImage atlas = loadImage(SpriteAtlas.RESOURCE);
+        final int size = SpriteAtlas.PIECE_SIZE;
 
-        restartButtonImage = loadImage("images/restart-button.png");
-        restartButtonImage.resize(RESTART_BUTTON_SIZE, RESTART_BUTTON_SIZE);
+        for (Player player : Player.values()) {
+            for (PieceType type : PieceType.values()) {
+                pieceImages[Piece.of(type, player).getId()] = atlas.get(SpriteAtlas.getPieceX(type), SpriteAtlas.getPieceY(player), size, size);
+            }
+        }
 
-        // Change from black to white
-        restartButtonImage.filter(INVERT);
+        restartButtonImage = atlas.get(SpriteAtlas.RESTART_BUTTON_X, SpriteAtlas.RESTART_BUTTON_Y,
+                SpriteAtlas.RESTART_BUTTON_SIZE, SpriteAtlas.RESTART_BUTTON_SIZE);
     }
 
     private void checkForPieceDrop() {
@@ -143,12 +183,38 @@ public class Chess extends PApplet {
             Square square = getSquareAtMouse();
             if (square != null) {
                 gameManager.handleMove(square);
+                invalidateStaticLayer();
             }
         }
     }
 
-    private void drawTiles() {
-        noStroke();
+    /**
+     * Marks the static layer as out of date, so it is redrawn on the next frame
+     */
+    private void invalidateStaticLayer() {
+        staticLayerValid = false;
+    }
+
+    private void updateStaticLayer() {
+        if (staticLayerValid) {
+            return;
+        }
+
+        staticLayer.beginDraw();
+        staticLayer.rectMode(CENTER);
+        staticLayer.imageMode(CENTER);
+        staticLayer.background(WHITE);
+        drawTiles(staticLayer);
+        drawTextArea(staticLayer);
+        drawButtons(staticLayer);
+        drawRestingPieces(staticLayer);
+        staticLayer.endDraw();
+
+        staticLayerValid = true;
+    }
+
+    private void drawTiles(PGraphics graphics) {
+        graphics.noStroke();
 
         for (Square square : gameManager.getBoard()) {
             final int squareX = square.getX();
@@ -156,31 +222,30 @@ public class Chess extends PApplet {
             final int pixelX = getPixelXFromSquareX(square.getX());
             final int pixelY = getPixelYFromSquareY(square.getY());
 
-            fill((squareX + squareY) % 2 == 0 ? CREAM : OLIVE);
-            rect(pixelX, pixelY, SQUARE_SIZE, SQUARE_SIZE);
+            graphics.fill((squareX + squareY) % 2 == 0 ? CREAM : OLIVE);
+            graphics.rect(pixelX, pixelY, SQUARE_SIZE, SQUARE_SIZE);
         }
     }
 
-    private void drawTextArea() {
-        noStroke();
-        fill(BROWN);
-        rect(TEXT_AREA_X, TEXT_AREA_Y, TEXT_AREA_WIDTH, TEXT_AREA_HEIGHT);
+    private void drawTextArea(PGraphics graphics) {
+        graphics.noStroke();
+        graphics.fill(BROWN);
+        graphics.rect(TEXT_AREA_X, TEXT_AREA_Y, TEXT_AREA_WIDTH, TEXT_AREA_HEIGHT);
 
-        fill(WHITE);
-        textSize(TEXT_AREA_TEXT_SIZE);
-        text("Current Move: " + gameManager.getCurrentPlayer().getName(), TEXT_AREA_TEXT_X, 30);
-        text(gameManager.getState().getDescription(), TEXT_AREA_TEXT_X, 80);
+        graphics.fill(WHITE);
+        graphics.textSize(TEXT_AREA_TEXT_SIZE);
+        graphics.text("Current Move: " + gameManager.getCurrentPlayer().getName(), TEXT_AREA_TEXT_X, 30);
+        graphics.text(gameManager.getState().getDescription(), TEXT_AREA_TEXT_X, 80);
     }
 
-    private void drawButtons() {
-        image(restartButtonImage, RESTART_BUTTON_X, RESTART_BUTTON_Y);
+    private void drawButtons(PGraphics graphics) {
+        graphics.image(restartButtonImage, RESTART_BUTTON_X, RESTART_BUTTON_Y);
     }
 
-    private void drawHighlights() {
+    private void drawHighlights(Square square) {
         Square selectedSquare = gameManager.getSelectedSquare();
 
         // Highlight current square
-        Square square = getSquareAtMouse();
         if (square != null) {
             if (selectedSquare == null) {
                 highlight(square, BLACK);
@@ -197,10 +262,6 @@ public class Chess extends PApplet {
         // Highlight failed selection
         if (failedSelectionSquare != null) {
             highlight(failedSelectionSquare, RED);
-
-            if (millis() - failedSelectionTimestamp >= FAILED_SELECTION_MILLIS) {
-                failedSelectionSquare = null;
-            }
         }
     }
 
@@ -213,6 +274,12 @@ public class Chess extends PApplet {
         final int size = SQUARE_SIZE - HIGHLIGHT_STROKE_WEIGHT;
         stroke(colour);
         rect(pixelX, pixelY, size, size);
+
+        // Highlights go under the pieces, so draw the piece over it again
+        final Piece piece = square.getPiece();
+        if (piece != null && square != gameManager.getSelectedSquare()) {
+            drawPiece(g, piece, pixelX, pixelY);
+        }
     }
 
     private void drawPossibleMoves() {
@@ -232,28 +299,25 @@ public class Chess extends PApplet {
 
     }
 
-    private void drawPieces() {
-        fill(BLACK);
-
-        // Show all the pieces except for the selected piece
+    private void drawRestingPieces(PGraphics graphics) {
+        // Show all the pieces except for the selected piece, which follows the mouse
         for (Square square : gameManager.getBoard()) {
             Piece piece = square.getPiece();
             if (piece != null && gameManager.getSelectedSquare() != square) {
-                drawPiece(piece, getPixelXFromSquareX(square.getX()), getPixelYFromSquareY(square.getY()));
+                drawPiece(graphics, piece, getPixelXFromSquareX(square.getX()), getPixelYFromSquareY(square.getY()));
             }
         }
+    }
 
-        // Show the selected piece
+    private void drawSelectedPiece() {
         Square selectedSquare = gameManager.getSelectedSquare();
         if (selectedSquare != null) {
-            drawPiece(selectedSquare.getPiece(), mouseX, mouseY);
+            drawPiece(g, selectedSquare.getPiece(), mouseX, mouseY);
         }
     }
 
-    private void drawPiece(Piece piece, int pixelX, int pixelY) {
-        Class<? extends Piece> clazz = piece.getClass();
-        PImage image = piece.getPlayer() == Player.BLACK ? blackImageMap.get(clazz) : whiteImageMap.get(clazz);
-        image(image, pixelX, pixelY);
+    private void drawPiece(PGraphics graphics, Piece piece, int pixelX, int pixelY) {
+        graphics.image(pieceImages[piece.getId()], pixelX, pixelY);
     }
 
     private boolean isMouseInRect(int x, int y, int width, int height) {
@@ -268,6 +332,8 @@ public class Chess extends PApplet {
 
     private void restartGame() {
         this.gameManager = new GameManager();
+        invalidateStaticLayer();
+        redraw();
     }
 
     private Square getSquareAtMouse() {
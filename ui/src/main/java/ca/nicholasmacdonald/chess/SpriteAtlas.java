@@ -0,0 +1,49 @@
+package ca.nicholasmacdonald.chess;
+
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+/**
+ * The layout of the sprite atlas - one image holding every piece, already scaled to size, and the restart button,
+ * already inverted. Black pieces are on the first row and white pieces on the second, in {@link PieceType} order,
+ * with the restart button below them.
+ * <p>
+ * The atlas is made from the source images by {@link SpriteAtlasGenerator} when the project is built.
+ *
+ * @author Nicholas MacDonald
+ */
+public final class SpriteAtlas {
+    public static final String RESOURCE = "images/atlas.png";
+
+    public static final int PIECE_SIZE = 100;
+    public static final int RESTART_BUTTON_SIZE = 70;
+
+    public static final int RESTART_BUTTON_X = 0;
+    public static final int RESTART_BUTTON_Y = PIECE_SIZE * Player.values().length;
+
+    public static final int WIDTH = PIECE_SIZE * PieceType.values().length;
+    public static final int HEIGHT = RESTART_BUTTON_Y + RESTART_BUTTON_SIZE;
+
+    private SpriteAtlas() {
+    }
+
+    /**
+     * Gets the x coordinate of the left edge of a piece in the atlas
+     *
+     * @param type the type of piece
+     * @return the x coordinate
+     */
+    public static int getPieceX(PieceType type) {
+        return type.ordinal() * PIECE_SIZE;
+    }
+
+    /**
+     * Gets the y coordinate of the top edge of a piece in the atlas
+     *
+     * @param player the player the piece belongs to
+     * @return the y coordinate
+     */
+    public static int getPieceY(Player player) {
+        return player.ordinal() * PIECE_SIZE;
+    }
+}
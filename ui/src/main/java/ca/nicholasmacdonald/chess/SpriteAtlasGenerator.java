@@ -0,0 +1,112 @@
+package ca.nicholasmacdonald.chess;
+
+import ca.nicholasmacdonald.chess.piece.PieceType;
+import ca.nicholasmacdonald.chess.piece.Player;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Builds the sprite atlas from the full size source images. Run by the build, so the game never has to decode or
+ * scale the source images itself.
+ * <pre>
+ * usage: SpriteAtlasGenerator SOURCE_DIRECTORY OUTPUT_FILE
+ * </pre>
+ *
+ * @author Nicholas MacDonald
+ * @see SpriteAtlas
+ */
+public class SpriteAtlasGenerator {
+    private SpriteAtlasGenerator() {
+    }
+
+    /**
+     * Draws every piece and the restart button into one image
+     *
+     * @param sourceDirectory the directory holding {@code pieces/} and {@code restart-button.png}
+     * @return the atlas
+     * @throws IOException if a source image can't be read
+     */
+    public static BufferedImage generate(File sourceDirectory) throws IOException {
+        final BufferedImage atlas = new BufferedImage(SpriteAtlas.WIDTH, SpriteAtlas.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+
+        for (Player player : Player.values()) {
+            for (PieceType type : PieceType.values()) {
+                final String name = "pieces/" + player.getName().toLowerCase() + "-" + type.name().toLowerCase() + ".png";
+                final BufferedImage image = scale(read(new File(sourceDirectory, name)), SpriteAtlas.PIECE_SIZE);
+                draw(atlas, image, SpriteAtlas.getPieceX(type), SpriteAtlas.getPieceY(player));
+            }
+        }
+
+        // The button is drawn black, but shown white on the brown text area
+        final BufferedImage restartButton = scale(read(new File(sourceDirectory, "restart-button.png")), SpriteAtlas.RESTART_BUTTON_SIZE);
+        invert(restartButton);
+        draw(atlas, restartButton, SpriteAtlas.RESTART_BUTTON_X, SpriteAtlas.RESTART_BUTTON_Y);
+
+        return atlas;
+    }
+
+    private static BufferedImage read(File file) throws IOException {
+        final BufferedImage image = ImageIO.read(file);
+        if (image == null) {
+            throw new IOException("Not an image: " + file);
+        }
+        return image;
+    }
+
+    /**
+     * Scales a square image down, halving it until it is close to the size so no detail is skipped
+     */
+    private static BufferedImage scale(BufferedImage image, int size) {
+        BufferedImage scaled = image;
+        int current = image.getWidth();
+
+        do {
+            current = Math.max(current / 2, size);
+            final BufferedImage next = new BufferedImage(current, current, BufferedImage.TYPE_INT_ARGB);
+            final Graphics2D graphics = next.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(scaled, 0, 0, current, current, null);
+            graphics.dispose();
+            scaled = next;
+        } while (current != size);
+
+        return scaled;
+    }
+
+    /**
+     * Inverts the colour of every pixel, leaving the transparency alone
+     */
+    private static void invert(BufferedImage image) {
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, image.getRGB(x, y) ^ 0x00FFFFFF);
+            }
+        }
+    }
+
+    private static void draw(BufferedImage atlas, BufferedImage image, int x, int y) {
+        final Graphics2D graphics = atlas.createGraphics();
+        graphics.drawImage(image, x, y, null);
+        graphics.dispose();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("usage: SpriteAtlasGenerator SOURCE_DIRECTORY OUTPUT_FILE");
+        }
+
+        final File output = new File(args[1]);
+        final File parent = output.getAbsoluteFile().getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+
+        ImageIO.write(generate(new File(args[0])), "png", output);
+    }
+}